@@ -0,0 +1,212 @@
+package com.kraftek.stac.core;
+
+import com.kraftek.stac.core.model.Catalog;
+import com.kraftek.stac.core.model.Collection;
+import com.kraftek.stac.core.model.CollectionList;
+import com.kraftek.stac.core.model.Item;
+import com.kraftek.stac.core.model.ItemCollection;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded thread-pool wrapper of {@link STACClient}, returning {@link CompletableFuture}s.
+ * Every call returns immediately, and is run by the (blocking) synchronous client on the executor given by the caller:
+ * each request in flight holds a thread of the executor until its response is parsed. The number of requests in
+ * flight to the same host is capped, across all the asynchronous clients in this JVM: the calls exceeding the cap
+ * are queued (without holding any thread) and dispatched as soon as the previous ones complete. The threads used
+ * are therefore bounded by the size of the executor and by the cap.
+ *
+ * @author Cosmin Cara
+ */
+public class AsyncSTACClient {
+    private static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    private static final Map<String, HostGate> gates = new ConcurrentHashMap<>();
+    private final STACClient client;
+    private final Executor executor;
+    private final int maxInFlightPerHost;
+
+    /**
+     * Creates an asynchronous client with the default cap of in-flight requests per host.
+     * @param client    The (synchronous) client performing the calls
+     * @param executor  The executor on which the calls are run
+     */
+    public AsyncSTACClient(STACClient client, Executor executor) {
+        this(client, executor, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Creates an asynchronous client.
+     * @param client                The (synchronous) client performing the calls
+     * @param executor              The executor on which the calls are run
+     * @param maxInFlightPerHost    The maximum number of simultaneous requests to the same host (including the
+     *                              requests of the other asynchronous clients) for the calls of this client
+     */
+    public AsyncSTACClient(STACClient client, Executor executor, int maxInFlightPerHost) {
+        if (client == null || executor == null) {
+            throw new IllegalArgumentException("client and executor are required");
+        }
+        if (maxInFlightPerHost <= 0) {
+            throw new IllegalArgumentException("maxInFlightPerHost must be positive");
+        }
+        this.client = client;
+        this.executor = executor;
+        this.maxInFlightPerHost = maxInFlightPerHost;
+    }
+
+    /**
+     * Returns the underlying synchronous client
+     */
+    public STACClient getClient() {
+        return client;
+    }
+
+    /**
+     * Retrieves the catalog description from the remote STAC service
+     */
+    public CompletableFuture<Catalog> getCatalog() {
+        return submit(client::getCatalog);
+    }
+    /**
+     * Retrieves the list of collection descriptions from the remote STAC service
+     */
+    public CompletableFuture<CollectionList> listCollections() {
+        return submit(client::listCollections);
+    }
+    /**
+     * Retrieves a single collection description from the remote STAC service
+     * @param collectionName The name of the collection
+     */
+    public CompletableFuture<Collection> getCollection(String collectionName) {
+        return submit(() -> client.getCollection(collectionName));
+    }
+    /**
+     * Retrieves the list of items (only the first page) from a given collection
+     * @param collectionName The name of the collection
+     */
+    public CompletableFuture<ItemCollection> listItems(String collectionName) {
+        return submit(() -> client.listItems(collectionName));
+    }
+    /**
+     * Retrieves a page of items from a given collection.
+     * @param collectionName The name of the colleciton
+     * @param pageNumber The page number (1-based)
+     * @param pageSize The page size
+     */
+    public CompletableFuture<ItemCollection> listItems(String collectionName, int pageNumber, int pageSize) {
+        return submit(() -> client.listItems(collectionName, pageNumber, pageSize));
+    }
+    /**
+     * Retrieves a single item from a collection.
+     * @param collectionName    The collection name
+     * @param itemId            The item identifier
+     */
+    public CompletableFuture<Item> getItem(String collectionName, String itemId) {
+        return submit(() -> client.getItem(collectionName, itemId));
+    }
+    /**
+     * Returns the first page of items that match the given parameters from a collection
+     * @param collectionName    The collection name
+     * @param parameters        The search criteria
+     */
+    public CompletableFuture<ItemCollection> search(String collectionName, Map<String, Object> parameters) {
+        return submit(() -> client.search(collectionName, parameters));
+    }
+    /**
+     * Returns a page of items that match the given parameters from a collection
+     * @param collectionName    The collection name
+     * @param parameters        The search criteria
+     * @param pageNumber        The page number (1-based)
+     * @param pageSize          The page size
+     */
+    public CompletableFuture<ItemCollection> search(String collectionName, Map<String, Object> parameters, int pageNumber, int pageSize) {
+        return submit(() -> client.search(collectionName, parameters, pageNumber, pageSize));
+    }
+
+    private <T> CompletableFuture<T> submit(IOSupplier<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final URL url = this.client.getURL();
+        final String host = url.getHost() + ":" + (url.getPort() > 0 ? url.getPort() : url.getDefaultPort());
+        final HostGate gate = gates.computeIfAbsent(host, h -> new HostGate());
+        gate.submit(new Pending(() -> {
+            try {
+                // the caller may have cancelled the future while the call was queued
+                if (!future.isDone()) {
+                    future.complete(call.get());
+                }
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                gate.release();
+            }
+        }, future, this.executor, this.maxInFlightPerHost));
+        return future;
+    }
+
+    /**
+     * Admits the tasks to their executor while fewer requests than the cap of their client are in flight to the host,
+     * queueing the others.
+     */
+    private static final class HostGate {
+        private final Queue<Pending> pending = new ArrayDeque<>();
+        private int inFlight;
+
+        void submit(Pending task) {
+            synchronized (this) {
+                if (this.inFlight >= task.maxInFlight || !this.pending.isEmpty()) {
+                    this.pending.add(task);
+                    return;
+                }
+                this.inFlight++;
+            }
+            dispatch(task);
+        }
+
+        void release() {
+            final Pending next;
+            synchronized (this) {
+                next = this.pending.peek();
+                // the releasing task still counts, so the next one takes its place only if within its own cap
+                if (next == null || this.inFlight > next.maxInFlight) {
+                    this.inFlight--;
+                    return;
+                }
+                this.pending.poll();
+            }
+            // the permit is handed over to the next queued task
+            dispatch(next);
+        }
+
+        private void dispatch(Pending task) {
+            try {
+                task.executor.execute(task.task);
+            } catch (RejectedExecutionException e) {
+                task.future.completeExceptionally(e);
+                release();
+            }
+        }
+    }
+
+    /**
+     * A call waiting to be admitted, with the executor and the cap of the client that submitted it
+     */
+    private static final class Pending {
+        private final Runnable task;
+        private final CompletableFuture<?> future;
+        private final Executor executor;
+        private final int maxInFlight;
+
+        Pending(Runnable task, CompletableFuture<?> future, Executor executor, int maxInFlight) {
+            this.task = task;
+            this.future = future;
+            this.executor = executor;
+            this.maxInFlight = maxInFlight;
+        }
+    }
+}
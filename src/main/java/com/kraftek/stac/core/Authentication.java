@@ -11,6 +11,7 @@ public class Authentication {
     private String password;
     private String loginUrl;
     private String authHeader;
+    private int tokenLifetime;
 
     public Authentication() {
         super();
@@ -71,4 +72,17 @@ public class Authentication {
     public void setAuthHeader(String authHeader) {
         this.authHeader = authHeader;
     }
+
+    /**
+     * The validity (in seconds) of a token, in case of TOKEN authentication.
+     * If not set (0), the validity is taken from the login response or, if the response doesn't state it,
+     * it defaults to 5 minutes.
+     */
+    public int getTokenLifetime() {
+        return tokenLifetime;
+    }
+
+    public void setTokenLifetime(int tokenLifetime) {
+        this.tokenLifetime = tokenLifetime;
+    }
 }
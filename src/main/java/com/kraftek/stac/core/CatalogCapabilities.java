@@ -0,0 +1,105 @@
+package com.kraftek.stac.core;
+
+import com.kraftek.stac.core.model.Catalog;
+import com.kraftek.stac.core.model.HttpMethod;
+import com.kraftek.stac.core.model.Link;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a STAC service offers, as resolved from its landing page (and, if the landing page does not list them,
+ * from its conformance page): the search endpoints with their HTTP methods, and the conformance classes.
+ * An instance is resolved once and reused by a {@link STACClient} until it expires.
+ *
+ * @author Cosmin Cara
+ */
+public class CatalogCapabilities {
+    private final Catalog catalog;
+    private final Map<HttpMethod, URL> searchURLs;
+    private final List<String> conformsTo;
+    private final long expiresAt;
+
+    CatalogCapabilities(Catalog catalog, List<String> conformsTo, long expiresAt) throws MalformedURLException {
+        this.catalog = catalog;
+        this.searchURLs = new EnumMap<>(HttpMethod.class);
+        // a catalog without links has no search endpoint
+        final List<Link> links = catalog.getLinks() != null ? catalog.getLinks() : Collections.emptyList();
+        for (Link link : links) {
+            if (link != null && "search".equals(link.getRel()) && link.getHref() != null &&
+                    !this.searchURLs.containsKey(link.getMethod())) {
+                this.searchURLs.put(link.getMethod(), new URL(link.getHref()));
+            }
+        }
+        this.conformsTo = conformsTo != null ? Collections.unmodifiableList(conformsTo) : Collections.emptyList();
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * The landing page of the service
+     */
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Tells if the service declares a search endpoint
+     */
+    public boolean isSearchSupported() {
+        return !this.searchURLs.isEmpty();
+    }
+
+    /**
+     * The HTTP methods of the search endpoints declared by the service
+     */
+    public Set<HttpMethod> getSearchMethods() {
+        return Collections.unmodifiableSet(this.searchURLs.keySet());
+    }
+
+    /**
+     * Returns the search endpoint for the given HTTP method. If the service declares no endpoint for this method,
+     * the endpoint of another method is returned (services often declare a single link for both).
+     * Returns <code>null</code> if the service declares no search endpoint.
+     * @param method    The HTTP method
+     */
+    public URL getSearchURL(HttpMethod method) {
+        final URL url = this.searchURLs.get(method);
+        return url != null || this.searchURLs.isEmpty() ? url : this.searchURLs.values().iterator().next();
+    }
+
+    /**
+     * The conformance classes implemented by the service
+     */
+    public List<String> getConformsTo() {
+        return conformsTo;
+    }
+
+    /**
+     * Tells if the service implements a conformance class. The version of the class is ignored, so that, for example,
+     * <code>https://api.stacspec.org/v1.0.0-rc.1/item-search</code> matches <code>https://api.stacspec.org/v1.0.0/item-search</code>.
+     * @param conformanceClass  The URI of the conformance class
+     */
+    public boolean conformsTo(String conformanceClass) {
+        final String expected = versionless(conformanceClass);
+        return this.conformsTo.stream().anyMatch(c -> versionless(c).equals(expected));
+    }
+
+    /**
+     * Tells if this instance should be resolved again
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= this.expiresAt;
+    }
+
+    /**
+     * Removes the version segment (such as <code>/v1.0.0-rc.1/</code>) from the URI of a conformance class
+     */
+    private static String versionless(String uri) {
+        return uri.replaceFirst("/v\\d+(\\.\\d+)*(-[^/]*)?/", "/");
+    }
+}
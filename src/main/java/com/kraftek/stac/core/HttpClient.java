@@ -1,185 +1,545 @@
 package com.kraftek.stac.core;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kraftek.stac.core.http.AdaptiveConcurrencyLimiter;
+import com.kraftek.stac.core.http.BodyWriter;
+import com.kraftek.stac.core.http.ContentDecoding;
+import com.kraftek.stac.core.http.DiskResponseCache;
+import com.kraftek.stac.core.http.HedgingPolicy;
+import com.kraftek.stac.core.http.HttpProtocol;
+import com.kraftek.stac.core.http.HttpResponseException;
+import com.kraftek.stac.core.http.HttpTransport;
+import com.kraftek.stac.core.http.OkHttpTransport;
+import com.kraftek.stac.core.http.RetryPolicy;
+import com.kraftek.stac.core.http.TransferStatistics;
+import com.kraftek.stac.core.http.TransportRequest;
+import com.kraftek.stac.core.http.TransportResponse;
+import com.kraftek.stac.core.model.HttpMethod;
 import org.geotools.http.HTTPResponse;
 import org.geotools.http.SimpleHttpClient;
 import org.geotools.util.Base64;
 import org.geotools.util.factory.GeoTools;
 
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
 import java.io.*;
-import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.X509Certificate;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class HttpClient extends SimpleHttpClient {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final long DEFAULT_TOKEN_LIFETIME = TimeUnit.MINUTES.toMillis(5);
     private final Logger logger = Logger.getLogger(HttpClient.class.getName());
     private final Authentication authentication;
+    private final HttpTransport transport;
+    private final TokenManager tokenManager;
+    private final ContentDecoding contentDecoding;
+    private final TransferStatistics statistics;
+    private volatile boolean compressionEnabled;
+    private volatile RetryPolicy retryPolicy;
+    private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private volatile DiskResponseCache responseCache;
+    private volatile HedgingPolicy hedgingPolicy;
 
+    /**
+     * Creates a client that uses the connection pool shared by all the clients in this JVM.
+     * @param authentication    The authentication scheme
+     */
     public HttpClient(Authentication authentication) {
+        this(authentication, OkHttpTransport.shared());
+    }
+
+    /**
+     * Creates a client that uses the connection pool of the given protocol, shared by all the clients in this JVM.
+     * @param authentication    The authentication scheme
+     * @param protocol          The preferred HTTP protocol version
+     */
+    public HttpClient(Authentication authentication, HttpProtocol protocol) {
+        this(authentication, OkHttpTransport.shared(protocol));
+    }
+
+    /**
+     * Creates a client that uses the given transport.
+     * @param authentication    The authentication scheme
+     * @param transport         The transport used to send the requests
+     */
+    public HttpClient(Authentication authentication, HttpTransport transport) {
         super();
+        if (transport == null) {
+            throw new IllegalArgumentException("transport cannot be null");
+        }
         this.authentication = authentication;
+        this.transport = transport;
+        this.tokenManager = new TokenManager(this::doLogin);
+        this.contentDecoding = new ContentDecoding();
+        this.statistics = new TransferStatistics();
+        this.compressionEnabled = true;
+        this.retryPolicy = new RetryPolicy();
+        this.concurrencyLimiter = AdaptiveConcurrencyLimiter.shared();
         if (this.authentication != null) {
             setUser(this.authentication.getUser());
             setPassword(this.authentication.getPassword());
         }
     }
 
+    /**
+     * Returns the transport used by this client
+     */
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Tells if compressed responses are requested from the server (enabled by default)
+     */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * Returns the policy for retrying the idempotent requests that failed with a transient error
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the policy for retrying the idempotent requests. A <code>null</code> value disables the retries.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the limiter of the requests in flight per host. By default, it is the limiter shared by all
+     * the clients in this JVM.
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Sets the limiter of the requests in flight per host. A <code>null</code> value disables the limitation.
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Returns the policy for hedging the idempotent requests, if any
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Sets the policy for hedging the idempotent requests. A <code>null</code> value (the default) disables hedging.
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Returns the cache of the GET responses, if any
+     */
+    public DiskResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the cache of the GET responses. A <code>null</code> value (the default) disables the caching.
+     */
+    public void setResponseCache(DiskResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Returns the registry of content decoders, which can be used to add support for other encodings
+     */
+    public ContentDecoding getContentDecoding() {
+        return contentDecoding;
+    }
+
+    /**
+     * Returns the number of bytes transferred (compressed and decompressed) by this client
+     */
+    public TransferStatistics getStatistics() {
+        return statistics;
+    }
+
     @Override
     public HTTPResponse get(URL url, Map<String, String> headers) throws IOException {
         logger.finest("URL is " + url);
 
-        URLConnection connection = openAuthConnection(url);
-        if (connection instanceof HttpURLConnection) {
-            ((HttpURLConnection) connection).setRequestMethod("GET");
-        }
-
-        // Set User-Agent to a good default
-        connection.addRequestProperty("User-Agent", "GeoTools HTTPClient (" + GeoTools.getVersion() + ")");
+        final TransportRequest request = newRequest(HttpMethod.GET, url);
         if (headers != null) {
             for (Map.Entry<String, String> headerNameValue : headers.entrySet()) {
-                connection.addRequestProperty(headerNameValue.getKey(), headerNameValue.getValue());
+                request.setHeader(headerNameValue.getKey(), headerNameValue.getValue());
             }
         }
-
-        connection.connect();
-
-        return new SimpleHTTPResponse(connection);
+        final DiskResponseCache cache = this.responseCache;
+        if (cache == null || request.getHeaders().containsKey("If-None-Match") ||
+                request.getHeaders().containsKey("If-Modified-Since")) {
+            return execute(request);
+        }
+        // responses may differ from one user to another
+        final String key = DiskResponseCache.key(url.toString(), getUser());
+        final DiskResponseCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            if (entry.isFresh()) {
+                final TransportResponse cached = cache.hit(entry);
+                if (cached != null) {
+                    return cached;
+                }
+            } else {
+                if (entry.getETag() != null) {
+                    request.setHeader("If-None-Match", entry.getETag());
+                }
+                if (entry.getLastModified() != null) {
+                    request.setHeader("If-Modified-Since", entry.getLastModified());
+                }
+            }
+        }
+        final TransportResponse response = execute(request);
+        if (entry != null && response.getStatusCode() == 304) {
+            final TransportResponse cached = cache.revalidated(entry, response);
+            if (cached != null) {
+                return cached;
+            }
+            // the entry was evicted meanwhile
+            request.getHeaders().remove("If-None-Match");
+            request.getHeaders().remove("If-Modified-Since");
+            return cache.store(key, execute(request));
+        }
+        return cache.store(key, response);
     }
 
     @Override
     public HTTPResponse post(URL url, InputStream postContent, String postContentType) throws IOException {
-        URLConnection connection = openAuthConnection(url);
-        if (connection instanceof HttpURLConnection) {
-            ((HttpURLConnection) connection).setRequestMethod("POST");
-        }
-        connection.setDoOutput(true);
-        if (postContentType != null) {
-            connection.setRequestProperty("Content-type", postContentType);
-        }
-
-        connection.connect();
-
-        try (OutputStream outputStream = connection.getOutputStream()) {
+        final TransportRequest request = newRequest(HttpMethod.POST, url);
+        request.setContentType(postContentType);
+        // the content stream can be consumed only once
+        request.setRepeatable(false);
+        request.setBody(outputStream -> {
             byte[] buff = new byte[512];
             int count;
             while ((count = postContent.read(buff)) > -1) {
                 outputStream.write(buff, 0, count);
             }
-            outputStream.flush();
+        });
+        return execute(request);
+    }
+
+    /**
+     * Sends a POST request whose content is written directly to the connection, with additional headers.
+     * Since the writer can produce the content again, the request can be resent (and, if declared idempotent,
+     * is retried and hedged as a GET request).
+     * @param url           The URL
+     * @param content       The writer of the content
+     * @param contentType   The media type of the content
+     * @param headers       Additional headers (may be <code>null</code>)
+     * @param idempotent    If sending the request several times has the same effect as sending it once
+     *                      (such as for a search)
+     */
+    public HTTPResponse post(URL url, BodyWriter content, String contentType, Map<String, String> headers,
+                             boolean idempotent) throws IOException {
+        final TransportRequest request = newRequest(HttpMethod.POST, url);
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.setHeader(header.getKey(), header.getValue());
+            }
         }
+        request.setContentType(contentType);
+        request.setIdempotent(idempotent);
+        request.setBody(content);
+        return execute(request);
+    }
 
-        return new SimpleHTTPResponse(connection);
+    private TransportRequest newRequest(HttpMethod method, URL url) {
+        final TransportRequest request = new TransportRequest(method, url);
+        // mind, timeouts are in seconds
+        request.setConnectTimeout(1000 * Math.max(getConnectTimeout(), 0));
+        request.setReadTimeout(1000 * Math.max(getReadTimeout(), 0));
+        // Set User-Agent to a good default
+        request.setHeader("User-Agent", "GeoTools HTTPClient (" + GeoTools.getVersion() + ")");
+        request.setHeader("Accept-Encoding", this.compressionEnabled ? this.contentDecoding.getAcceptEncoding() : "identity");
+        return request;
     }
 
-    private URLConnection openConnection(URL finalURL) throws IOException {
-        URLConnection connection = finalURL.openConnection();
-        final boolean http = connection instanceof HttpURLConnection;
-        // mind, connect timeout is in seconds
-        if (http && getConnectTimeout() > 0) {
-            connection.setConnectTimeout(1000 * getConnectTimeout());
+    private TransportResponse execute(TransportRequest request) throws IOException {
+        final RetryPolicy policy = this.retryPolicy;
+        if (policy == null || !request.isIdempotent() || !request.isRepeatable()) {
+            return executeAttempt(request);
         }
-        if (http && getReadTimeout() > 0) {
-            connection.setReadTimeout(1000 * getReadTimeout());
+        policy.getBudget().onRequest();
+        long delay = 0;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeAttempt(request);
+            } catch (IOException e) {
+                if (attempt >= policy.getMaxAttempts() || !policy.isRetryable(e) ||
+                        (delay = policy.nextDelay(delay, e)) < 0 || !policy.getBudget().tryRetry()) {
+                    throw e;
+                }
+                logger.fine(String.format("Attempt %d for %s failed (%s), retrying in %d ms",
+                                          attempt, request.getUrl(), e.getMessage(), delay));
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + request.getUrl());
+                }
+            }
         }
-        if (http && finalURL.getProtocol().equalsIgnoreCase("https")) {
+    }
+
+    private TransportResponse executeAttempt(TransportRequest request) throws IOException {
+        final HedgingPolicy policy = this.hedgingPolicy;
+        if (policy == null || !request.isIdempotent() || !request.isRepeatable()) {
+            return executeOnce(request);
+        }
+        final long hedgeDelay = policy.getHedgeDelay(request.getUrl());
+        policy.getBudget().onRequest();
+        final long start = System.nanoTime();
+        if (hedgeDelay < 0) {
+            // not enough latency samples yet
+            final TransportResponse response = executeOnce(request);
+            policy.record(request.getUrl(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return response;
+        }
+        final HedgedCall call = new HedgedCall();
+        final TransportRequest hedgeRequest = request.copy();
+        final CompletableFuture<TransportResponse> hedge = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.MILLISECONDS, policy.getExecutor()).execute(() -> {
+            if (!call.startHedge(policy)) {
+                return;
+            }
+            logger.fine(String.format("No response from %s after %d ms, sending a hedged request",
+                                      request.getUrl(), hedgeDelay));
+            try {
+                final TransportResponse response = executeOnce(hedgeRequest);
+                if (call.win()) {
+                    // the primary attempt is cancelled, so the latency seen by the caller (including the hedging
+                    // delay) is recorded: the hedge alone would leave the slow responses out of the samples
+                    policy.record(request.getUrl(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    request.cancel();
+                    hedge.complete(response);
+                } else {
+                    response.dispose();
+                    hedge.cancel(false);
+                }
+            } catch (IOException | RuntimeException e) {
+                hedge.completeExceptionally(e);
+            }
+        });
+        final TransportResponse response;
+        try {
+            response = executeOnce(request);
+        } catch (IOException e) {
+            if (!call.primaryFailed()) {
+                throw e;
+            }
+            // the hedge is in progress (or it won and cancelled this attempt)
             try {
-                applySelfSignedLocalhostFix((HttpsURLConnection) connection);
-            } catch (NoSuchAlgorithmException | KeyManagementException e) {
-                throw new IOException(e);
+                return awaitHedge(hedge);
+            } catch (IOException hedgeError) {
+                e.addSuppressed(hedgeError);
+                throw e;
+            }
+        }
+        if (call.win()) {
+            policy.record(request.getUrl(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            hedgeRequest.cancel();
+            return response;
+        }
+        // the hedge won and recorded the latency of the call
+        response.dispose();
+        return awaitHedge(hedge);
+    }
+
+    private TransportResponse awaitHedge(CompletableFuture<TransportResponse> hedge) throws IOException {
+        try {
+            return hedge.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the hedged request");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException(e.getCause());
+        } catch (CancellationException e) {
+            throw new IOException("The hedged request was cancelled", e);
+        }
+    }
+
+    private TransportResponse executeOnce(TransportRequest request) throws IOException {
+        final String token = authorize(request);
+        TransportResponse response = send(request);
+        if (response.getStatusCode() == 401 && token != null && request.isRepeatable()) {
+            // The token may have been revoked before its expiration: login again and retry once
+            response.dispose();
+            logger.fine("Token rejected for " + request.getUrl() + ", performing a new login");
+            request.setHeader(this.authentication.getAuthHeader(), this.tokenManager.forceRefresh(token));
+            response = send(request);
+        }
+        if (response.getStatusCode() >= 400) {
+            response.dispose();
+            throw new HttpResponseException(response.getStatusCode(), request.getUrl(), response.getHeaders());
+        }
+        return this.contentDecoding.decode(response, this.statistics);
+    }
+
+    /**
+     * Sends the request through the transport, within the concurrency limit of the target host.
+     */
+    private TransportResponse send(TransportRequest request) throws IOException {
+        final AdaptiveConcurrencyLimiter limiter = this.concurrencyLimiter;
+        if (limiter == null) {
+            return this.transport.execute(request);
+        }
+        final AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(request.getUrl());
+        try {
+            final TransportResponse response = this.transport.execute(request);
+            permit.onResponse(response.getStatusCode());
+            return response;
+        } catch (SocketTimeoutException e) {
+            permit.onTimeout();
+            throw e;
+        } finally {
+            permit.onIgnore();
         }
-        return connection;
     }
 
-    private URLConnection openAuthConnection(URL finalURL) throws IOException {
-        URLConnection connection = openConnection(finalURL);
+    /**
+     * Adds the authentication header to the request.
+     * Returns the token used, in case of TOKEN authentication, or <code>null</code> otherwise.
+     */
+    private String authorize(TransportRequest request) throws IOException {
         final String username = getUser();
         final String password = getPassword();
 
-        if (connection instanceof HttpURLConnection && username != null && password != null) {
+        if (username != null && password != null) {
             switch (this.authentication.getType()) {
                 case BASIC:
                     String userpassword = username + ":" + password;
                     String encodedAuthorization =
                             Base64.encodeBytes(
                                     userpassword.getBytes(StandardCharsets.UTF_8), Base64.DONT_BREAK_LINES);
-                    connection.setRequestProperty("Authorization", "Basic " + encodedAuthorization);
+                    request.setHeader("Authorization", "Basic " + encodedAuthorization);
                     break;
                 case TOKEN:
-                    connection.setRequestProperty(this.authentication.getAuthHeader(), doLogin());
-                    break;
+                    final String token = this.tokenManager.getToken();
+                    request.setHeader(this.authentication.getAuthHeader(), token);
+                    return token;
             }
         }
-        return connection;
+        return null;
+    }
+
+    /**
+     * The state of a hedged request: the first attempt that succeeds wins.
+     */
+    private static final class HedgedCall {
+        private boolean primaryDone;
+        private boolean hedgeStarted;
+        private boolean decided;
+
+        synchronized boolean startHedge(HedgingPolicy policy) {
+            if (this.primaryDone || this.decided || !policy.getBudget().tryRetry()) {
+                return false;
+            }
+            this.hedgeStarted = true;
+            return true;
+        }
+
+        synchronized boolean win() {
+            if (this.decided) {
+                return false;
+            }
+            this.decided = true;
+            return true;
+        }
+
+        /**
+         * Returns <code>true</code> if the outcome of the hedge should be awaited
+         */
+        synchronized boolean primaryFailed() {
+            this.primaryDone = true;
+            return this.hedgeStarted;
+        }
     }
 
-    private String doLogin() throws IOException {
+    private TokenManager.Token doLogin() throws IOException {
         if (this.authentication != null) {
-            URLConnection connection = openConnection(new URL(this.authentication.getLoginUrl()));
-            ((HttpURLConnection) connection).setRequestMethod("POST");
-            connection.setDoInput(true);
-            connection.setDoOutput(true);
-            connection.setRequestProperty("Content-type", "application/x-www-form-urlencoded");
-            try (DataOutputStream out = new DataOutputStream(connection.getOutputStream())) {
-                final String content = "user=" + URLEncoder.encode(getUser(), "UTF-8") + "&password=" + URLEncoder.encode(getPassword(), "UTF-8");
-                out.writeBytes(content);
-                out.flush();
-            }
-            final StringBuilder builder = new StringBuilder();
-            String line;
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                while ((line = reader.readLine()) != null) {
-                    builder.append(line);
+            final TransportRequest request = newRequest(HttpMethod.POST, new URL(this.authentication.getLoginUrl()));
+            request.setContentType("application/x-www-form-urlencoded");
+            final String content = "user=" + URLEncoder.encode(getUser(), "UTF-8") + "&password=" + URLEncoder.encode(getPassword(), "UTF-8");
+            request.setBody(out -> out.write(content.getBytes(StandardCharsets.UTF_8)));
+            final TransportResponse response = this.transport.execute(request);
+            final Object data;
+            try (InputStream inputStream = this.contentDecoding.decode(response, this.statistics).getResponseStream()) {
+                if (response.getStatusCode() >= 400) {
+                    throw new HttpResponseException(response.getStatusCode(), request.getUrl());
                 }
+                data = mapper.readValue(inputStream, Object.class);
+            } finally {
+                response.dispose();
             }
-            final Object data = new ObjectMapper().reader().readValue(builder.toString());
             if (data instanceof String) {
-                return (String) data;
+                return new TokenManager.Token((String) data, tokenLifetime((String) data, null));
             } else {
-                final Map.Entry<String, String> entry = ((Map<String, String>) data).entrySet().stream()
-                                                                                    .filter(e -> e.getKey().toLowerCase().contains("token"))
-                                                                                    .findFirst().orElse(null);
-                return entry != null ? entry.getValue() : null;
+                final Map<String, Object> values = (Map<String, Object>) data;
+                final Map.Entry<String, Object> entry = values.entrySet().stream()
+                                                              .filter(e -> e.getKey().toLowerCase().contains("token"))
+                                                              .findFirst().orElse(null);
+                final String token = entry != null && entry.getValue() != null ? entry.getValue().toString() : null;
+                return new TokenManager.Token(token, tokenLifetime(token, values.get("expires_in")));
             }
         } else {
             return null;
         }
     }
 
-    private HttpsURLConnection applySelfSignedLocalhostFix(HttpsURLConnection connection) throws NoSuchAlgorithmException, KeyManagementException {
-        final TrustManager[] trustAllCerts = new TrustManager[] {
-                new X509TrustManager() {
-                    public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                        return null;
+    /**
+     * Determines the validity (in milliseconds) of a token, in this order: from the authentication settings,
+     * from the login response, from the token itself (if it is a JWT), or the default value.
+     */
+    private long tokenLifetime(String token, Object expiresIn) {
+        if (this.authentication.getTokenLifetime() > 0) {
+            return TimeUnit.SECONDS.toMillis(this.authentication.getTokenLifetime());
+        }
+        if (expiresIn != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(expiresIn.toString().trim()));
+            } catch (NumberFormatException e) {
+                logger.fine("Invalid expires_in value: " + expiresIn);
+            }
+        }
+        if (token != null) {
+            final String[] parts = token.split("\\.");
+            if (parts.length == 3) {
+                try {
+                    final Map<?, ?> claims = mapper.readValue(java.util.Base64.getUrlDecoder().decode(parts[1]), Map.class);
+                    final Object exp = claims.get("exp");
+                    if (exp instanceof Number) {
+                        return Math.max(0, TimeUnit.SECONDS.toMillis(((Number) exp).longValue()) - System.currentTimeMillis());
                     }
-
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {  }
-
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {  }
-
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.fine("The token is not a JWT");
                 }
-        };
-
-        final SSLContext sc = SSLContext.getInstance("TLS");
-        sc.init(null, trustAllCerts, new java.security.SecureRandom());
-        connection.setSSLSocketFactory(sc.getSocketFactory());
-
-        // Install the all-trusting host verifier
-        connection.setHostnameVerifier((hostname, session) -> true);
-        /*
-         * end of the fix
-         */
-        return  connection;
+            }
+        }
+        return DEFAULT_TOKEN_LIFETIME;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.kraftek.stac.core;
+
+import java.io.IOException;
+
+/**
+ * Supplier of a value that may fail with an I/O error.
+ * @param <T>   The type of the value
+ *
+ * @author Cosmin Cara
+ */
+@FunctionalInterface
+interface IOSupplier<T> {
+    T get() throws IOException;
+}
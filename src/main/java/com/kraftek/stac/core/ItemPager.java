@@ -0,0 +1,271 @@
+package com.kraftek.stac.core;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kraftek.stac.core.http.BodyWriter;
+import com.kraftek.stac.core.model.HttpMethod;
+import com.kraftek.stac.core.model.Item;
+import com.kraftek.stac.core.model.ItemCollection;
+import com.kraftek.stac.core.model.Link;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Iterates over the items of all the pages of a listing or search, by following the <code>next</code> links
+ * of the pages. While the items of a page are consumed, the next page is already retrieved in background.
+ * For POST links, the body of the link replaces the body of the previous request or, if the link asks for it,
+ * is merged into it (the members of the link replacing the ones of the search criteria).
+ * The iteration ends at the first page without a <code>next</code> link, at the first empty page, or when a link
+ * leads to a page already retrieved.
+ *
+ * @author Cosmin Cara
+ */
+final class ItemPager implements Iterator<Item>, Closeable {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ExecutorService prefetcher = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "stac-page-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final PageFetcher fetcher;
+    private final Set<String> visited;
+    private Future<Page> pending;
+    private Iterator<Item> items;
+    private volatile boolean closed;
+
+    /**
+     * Creates the iterator and starts retrieving the first page.
+     * @param first     The request of the first page
+     * @param fetcher   The retriever of a page
+     */
+    ItemPager(PageRequest first, PageFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.visited = new HashSet<>();
+        this.visited.add(first.key());
+        this.pending = submit(first);
+    }
+
+    /**
+     * Creates the iterator from a first page already retrieved.
+     * @param first     The request of the first page
+     * @param firstPage The first page
+     * @param fetcher   The retriever of a page
+     */
+    ItemPager(PageRequest first, ItemCollection firstPage, PageFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.visited = new HashSet<>();
+        this.visited.add(first.key());
+        this.pending = CompletableFuture.completedFuture(new Page(first, firstPage));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (this.items == null || !this.items.hasNext()) {
+            if (this.closed || this.pending == null) {
+                return false;
+            }
+            final Page page = await(this.pending);
+            this.pending = null;
+            final List<Item> features = page.result.getFeatures();
+            if (features == null || features.isEmpty()) {
+                return false;
+            }
+            this.items = features.iterator();
+            final PageRequest next;
+            try {
+                next = page.request.follow(nextLink(page.result));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (next != null && this.visited.add(next.key())) {
+                this.pending = submit(next);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Item next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.items.next();
+    }
+
+    /**
+     * Stops the iteration and abandons the page being retrieved, if any
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        final Future<Page> page = this.pending;
+        if (page != null) {
+            page.cancel(true);
+            this.pending = null;
+        }
+    }
+
+    private Future<Page> submit(PageRequest request) {
+        return prefetcher.submit(() -> new Page(request, this.fetcher.fetch(request)));
+    }
+
+    private static Page await(Future<Page> page) {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the next page"));
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+
+    private static Link nextLink(ItemCollection page) {
+        final List<Link> links = page.getLinks();
+        return links != null
+               ? links.stream().filter(l -> "next".equals(l.getRel())).findFirst().orElse(null)
+               : null;
+    }
+
+    /**
+     * Retriever of a page of items
+     */
+    @FunctionalInterface
+    interface PageFetcher {
+        ItemCollection fetch(PageRequest request) throws IOException;
+    }
+
+    /**
+     * The HTTP request of a page of items
+     */
+    static final class PageRequest {
+        private final URL url;
+        private final HttpMethod method;
+        private final SearchRequest search;
+        private final Map<String, Object> body;
+        private final Map<String, String> headers;
+
+        /**
+         * Creates a request.
+         * @param url       The URL
+         * @param method    The HTTP method
+         * @param search    For a POST request, the search criteria (may be <code>null</code>)
+         * @param body      For a POST request, the members of the body (replacing the ones of the search criteria)
+         * @param headers   Additional headers (may be <code>null</code>)
+         */
+        PageRequest(URL url, HttpMethod method, SearchRequest search, Map<String, Object> body, Map<String, String> headers) {
+            this.url = url;
+            this.method = method;
+            this.search = search;
+            this.body = body;
+            this.headers = headers;
+        }
+
+        URL getUrl() {
+            return url;
+        }
+
+        HttpMethod getMethod() {
+            return method;
+        }
+
+        /**
+         * Writes the content of a POST request as JSON, directly to the connection
+         */
+        BodyWriter getBody() {
+            return out -> {
+                final JsonGenerator generator = mapper.getFactory().createGenerator(out);
+                generator.writeStartObject();
+                if (this.search != null) {
+                    this.search.writeFields(generator, this.body);
+                } else if (this.body != null) {
+                    for (Map.Entry<String, Object> entry : this.body.entrySet()) {
+                        generator.writeObjectField(entry.getKey(), entry.getValue());
+                    }
+                }
+                generator.writeEndObject();
+                // the connection stream is not to be closed
+                generator.flush();
+            };
+        }
+
+        Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Builds the request of the resource of the given link, or returns <code>null</code> if there is no link
+         */
+        PageRequest follow(Link link) throws IOException {
+            if (link == null || link.getHref() == null) {
+                return null;
+            }
+            Map<String, String> headers = null;
+            if (link.getHeaders() != null) {
+                headers = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> header : link.getHeaders().entrySet()) {
+                    headers.put(header.getKey(), String.valueOf(header.getValue()));
+                }
+            }
+            if (link.getMethod() != HttpMethod.POST) {
+                return new PageRequest(new URL(link.getHref()), HttpMethod.GET, null, null, headers);
+            }
+            final Map<String, Object> body = link.getBody() != null
+                                             ? mapper.readValue(link.getBody(), new TypeReference<LinkedHashMap<String, Object>>() { })
+                                             : null;
+            if (!link.getMerge()) {
+                return new PageRequest(new URL(link.getHref()), HttpMethod.POST, null, body, headers);
+            }
+            // the members of the link are merged into the current body
+            final Map<String, Object> merged = this.body != null ? new LinkedHashMap<>(this.body) : new LinkedHashMap<>();
+            if (body != null) {
+                merged.putAll(body);
+            }
+            return new PageRequest(new URL(link.getHref()), HttpMethod.POST, this.search, merged, headers);
+        }
+
+        /**
+         * Identifies the request among the ones of the same iteration
+         */
+        String key() {
+            return this.method + " " + this.url + (this.body != null ? " " + this.body : "");
+        }
+    }
+
+    private static final class Page {
+        private final PageRequest request;
+        private final ItemCollection result;
+
+        private Page(PageRequest request, ItemCollection result) {
+            this.request = request;
+            this.result = result;
+        }
+    }
+}
@@ -1,20 +1,33 @@
 package com.kraftek.stac.core;
 
+import com.kraftek.stac.core.http.HttpProtocol;
+import com.kraftek.stac.core.http.HttpTransport;
 import com.kraftek.stac.core.model.*;
 import org.geotools.http.HTTPResponse;
+import com.kraftek.stac.core.parser.ItemCollectionReader;
+import com.kraftek.stac.core.parser.ParseProfile;
 import com.kraftek.stac.core.parser.STACParser;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Client for a STAC web service.
@@ -22,12 +35,24 @@ import java.util.Map;
  * - browsing various STAC items (catalog, collections, items)
  * - searching collections
  * - downloading individual assets or full items
+ * All the pages of a listing or search can be consumed as a single stream of items ({@link #listAllItems(String, int)},
+ * {@link #searchAll(String, Map, int)}), which follows the <code>next</code> links of the pages.
+ * Searches with large criteria (geometries, long lists of identifiers, CQL2 filters) can be sent with
+ * <code>POST /search</code> as a {@link SearchRequest}.
+ * The capabilities of the service (search endpoints, conformance classes) are resolved once and reused for
+ * a configurable time, instead of retrieving the landing page for every search.
+ * Identical requests issued concurrently (for example, several threads resolving the same collection)
+ * share a single HTTP call and the same parsed result, which should therefore be treated as read-only.
  *
  * @author Cosmin Cara
  */
 public class STACClient {
     private final URL stacURL;
     final HttpClient client;
+    private final SingleFlight flights = new SingleFlight();
+    private final Logger logger = Logger.getLogger(STACClient.class.getName());
+    private volatile CatalogCapabilities capabilities;
+    private volatile long capabilitiesTimeToLive = 300;
 
     /**
      * Initializes a new client for the given URL, with specific authentication instructions.
@@ -39,33 +64,105 @@ public class STACClient {
         this.client= new HttpClient(authentication);
     }
 
+    /**
+     * Initializes a new client for the given URL, with specific authentication instructions,
+     * that prefers the given HTTP protocol version.
+     * With {@link HttpProtocol#HTTP_2}, concurrent requests share a few multiplexed connections
+     * (falling back to HTTP/1.1 if the server does not support it).
+     * @param baseURL           The URL of the STAC web service
+     * @param authentication    The authentication scheme
+     * @param protocol          The preferred HTTP protocol version
+     */
+    public STACClient(String baseURL, Authentication authentication, HttpProtocol protocol) throws MalformedURLException {
+        this.stacURL = new URL(baseURL);
+        this.client = new HttpClient(authentication, protocol);
+    }
+
+    /**
+     * Initializes a new client for the given URL, with specific authentication instructions,
+     * that sends its requests through the given transport.
+     * @param baseURL           The URL of the STAC web service
+     * @param authentication    The authentication scheme
+     * @param transport         The HTTP transport
+     */
+    public STACClient(String baseURL, Authentication authentication, HttpTransport transport) throws MalformedURLException {
+        this.stacURL = new URL(baseURL);
+        this.client = new HttpClient(authentication, transport);
+    }
+
+    /**
+     * Returns the URL of the STAC web service
+     */
+    public URL getURL() {
+        return stacURL;
+    }
+
+    /**
+     * Returns the HTTP client used by this client (for example, to inspect its transfer statistics)
+     */
+    public HttpClient getHttpClient() {
+        return client;
+    }
+
+    /**
+     * Returns the time (in seconds) for which the capabilities of the service are reused
+     */
+    public long getCapabilitiesTimeToLive() {
+        return capabilitiesTimeToLive;
+    }
+
+    /**
+     * Sets the time (in seconds) for which the capabilities of the service are reused. With 0, they are resolved
+     * for every search.
+     */
+    public void setCapabilitiesTimeToLive(long capabilitiesTimeToLive) {
+        if (capabilitiesTimeToLive < 0) {
+            throw new IllegalArgumentException("capabilitiesTimeToLive cannot be negative");
+        }
+        this.capabilitiesTimeToLive = capabilitiesTimeToLive;
+    }
+
+    /**
+     * Returns the capabilities of the service (search endpoints, conformance classes). They are resolved once and
+     * reused until they expire.
+     */
+    public CatalogCapabilities getCapabilities() throws IOException {
+        final CatalogCapabilities current = this.capabilities;
+        return current != null && !current.isExpired() ? current : refreshCapabilities();
+    }
+
+    /**
+     * Resolves again the capabilities of the service (for example, after the service was updated)
+     */
+    public CatalogCapabilities refreshCapabilities() throws IOException {
+        return this.flights.execute(CatalogCapabilities.class.getName() + " " + this.stacURL, () -> {
+            final Catalog catalog = getCatalog();
+            final List<String> conformsTo = catalog.getConformsTo() != null ? catalog.getConformsTo() : fetchConformance(catalog);
+            final CatalogCapabilities resolved = new CatalogCapabilities(catalog, conformsTo,
+                                                                         System.currentTimeMillis() + 1000 * this.capabilitiesTimeToLive);
+            this.capabilities = resolved;
+            return resolved;
+        });
+    }
+
     /**
      * Retrieves the catalog description from the remote STAC service
      */
     public Catalog getCatalog() throws IOException {
-        final HTTPResponse response = this.client.get(this.stacURL);
-        try (InputStream inStream = response.getResponseStream()) {
-            return new STACParser().parseCatalogResponse(inStream);
-        }
+        return fetch(this.stacURL, Catalog.class, inStream -> new STACParser().parseCatalogResponse(inStream));
     }
     /**
      * Retrieves the list of collection descriptions from the remote STAC service
      */
     public CollectionList listCollections() throws IOException {
-        final HTTPResponse response = this.client.get(new URL(this.stacURL + "/collections"));
-        try (InputStream inStream = response.getResponseStream()) {
-            return new STACParser().parseCollectionsResponse(inStream);
-        }
+        return fetch(new URL(this.stacURL + "/collections"), CollectionList.class, inStream -> new STACParser().parseCollectionsResponse(inStream));
     }
     /**
      * Retrieves a single collection description from the remote STAC service
      * @param collectionName The name of the collection
      */
     public Collection getCollection(String collectionName) throws IOException {
-        final HTTPResponse response = this.client.get(new URL(this.stacURL + "/collections/" + collectionName));
-        try (InputStream inStream = response.getResponseStream()) {
-            return new STACParser().parseCollectionResponse(inStream);
-        }
+        return fetch(new URL(this.stacURL + "/collections/" + collectionName), Collection.class, inStream -> new STACParser().parseCollectionResponse(inStream));
     }
     /**
      * Retrieves the list of items (only the first page) from a given collection
@@ -81,14 +178,29 @@ public class STACClient {
      * @param pageSize The page size
      */
     public ItemCollection listItems(String collectionName, int pageNumber, int pageSize) throws IOException {
-        String href = this.stacURL + "/collections/" + collectionName + "/items";
-        if (pageNumber > 0 & pageSize > 0) {
-            href += "?page=" + pageNumber + "&limit=" + pageSize;
-        }
-        final HTTPResponse response = this.client.get(new URL(href));
-        try (InputStream inStream = response.getResponseStream()) {
-            return new STACParser().parseItemCollectionResponse(inStream);
-        }
+        return fetch(itemsURL(collectionName, pageNumber, pageSize), ItemCollection.class,
+                     inStream -> new STACParser().parseItemCollectionResponse(inStream));
+    }
+    /**
+     * Opens a page of items from a given collection, for reading the items one at a time as they are received.
+     * The returned reader must be closed.
+     * @param collectionName The name of the collection
+     * @param pageNumber The page number (1-based)
+     * @param pageSize The page size
+     */
+    public ItemCollectionReader streamItems(String collectionName, int pageNumber, int pageSize) throws IOException {
+        return streamItems(collectionName, pageNumber, pageSize, null);
+    }
+    /**
+     * Opens a page of items from a given collection, for reading the items one at a time as they are received,
+     * keeping only the parts of the items declared by the profile. The returned reader must be closed.
+     * @param collectionName The name of the collection
+     * @param pageNumber The page number (1-based)
+     * @param pageSize The page size
+     * @param profile The parts of the items to keep (<code>null</code> for all)
+     */
+    public ItemCollectionReader streamItems(String collectionName, int pageNumber, int pageSize, ParseProfile profile) throws IOException {
+        return open(itemsURL(collectionName, pageNumber, pageSize), profile);
     }
     /**
      * Retrieves a single item from a collection.
@@ -97,10 +209,7 @@ public class STACClient {
      */
     public Item getItem(String collectionName, String itemId) throws IOException {
         String href = this.stacURL + "/collections/" + collectionName + "/items/" + itemId;
-        final HTTPResponse response = this.client.get(new URL(href));
-        try (InputStream inStream = response.getResponseStream()) {
-            return new STACParser().parseItemResponse(inStream);
-        }
+        return fetch(new URL(href), Item.class, inStream -> new STACParser().parseItemResponse(inStream));
     }
 
     /**
@@ -122,28 +231,236 @@ public class STACClient {
         if (parameters == null) {
             return listItems(collectionName);
         }
-        final Catalog catalog = getCatalog();
-        Link searchLink = catalog.getLinks().stream().filter(l -> "search".equals(l.getRel())).findFirst().orElse(null);
-        if (searchLink == null) {
-            throw new IOException("Search not supported on catalog " + catalog.getId());
+        return fetch(searchURL(collectionName, parameters, pageNumber, pageSize), ItemCollection.class,
+                     inStream -> new STACParser().parseItemCollectionResponse(inStream));
+    }
+    /**
+     * Opens a page of items that match the given parameters from a collection, for reading the items one at a time
+     * as they are received. The returned reader must be closed.
+     * @param collectionName    The collection name
+     * @param parameters        The search criteria
+     * @param pageNumber        The page number (1-based)
+     * @param pageSize          The page size
+     */
+    public ItemCollectionReader streamSearch(String collectionName, Map<String, Object> parameters, int pageNumber, int pageSize) throws IOException {
+        return streamSearch(collectionName, parameters, pageNumber, pageSize, null);
+    }
+    /**
+     * Opens a page of items that match the given parameters from a collection, for reading the items one at a time
+     * as they are received, keeping only the parts of the items declared by the profile. The returned reader must be closed.
+     * @param collectionName    The collection name
+     * @param parameters        The search criteria
+     * @param pageNumber        The page number (1-based)
+     * @param pageSize          The page size
+     * @param profile           The parts of the items to keep (<code>null</code> for all)
+     */
+    public ItemCollectionReader streamSearch(String collectionName, Map<String, Object> parameters, int pageNumber, int pageSize,
+                                             ParseProfile profile) throws IOException {
+        if (parameters == null) {
+            return streamItems(collectionName, 0, 0, profile);
+        }
+        return open(searchURL(collectionName, parameters, pageNumber, pageSize), profile);
+    }
+
+    /**
+     * Returns all the items of a collection, retrieved page by page as the stream is consumed.
+     * The pages are followed through their <code>next</code> links, and the next page is retrieved while the items
+     * of the current one are consumed. The stream should be closed if it is not consumed entirely.
+     * Retrieval errors are thrown as {@link java.io.UncheckedIOException}.
+     * @param collectionName The name of the collection
+     * @param pageSize The page size (0 for the default of the service)
+     */
+    public Stream<Item> listAllItems(String collectionName, int pageSize) throws IOException {
+        return listAllItems(collectionName, pageSize, null);
+    }
+    /**
+     * Returns all the items of a collection, retrieved page by page as the stream is consumed, keeping only
+     * the parts of the items declared by the profile. The stream should be closed if it is not consumed entirely.
+     * @param collectionName The name of the collection
+     * @param pageSize The page size (0 for the default of the service)
+     * @param profile The parts of the items to keep (<code>null</code> for all)
+     */
+    public Stream<Item> listAllItems(String collectionName, int pageSize, ParseProfile profile) throws IOException {
+        return stream(itemsURL(collectionName, 0, pageSize), profile);
+    }
+    /**
+     * Returns all the items that match the given parameters from a collection, retrieved page by page as the stream
+     * is consumed. The pages are followed through their <code>next</code> links (including POST links), and the next
+     * page is retrieved while the items of the current one are consumed. The stream should be closed if it is not
+     * consumed entirely. Retrieval errors are thrown as {@link java.io.UncheckedIOException}.
+     * @param collectionName    The collection name
+     * @param parameters        The search criteria
+     * @param pageSize          The page size (0 for the default of the service)
+     */
+    public Stream<Item> searchAll(String collectionName, Map<String, Object> parameters, int pageSize) throws IOException {
+        return searchAll(collectionName, parameters, pageSize, null);
+    }
+    /**
+     * Returns all the items that match the given parameters from a collection, retrieved page by page as the stream
+     * is consumed, keeping only the parts of the items declared by the profile.
+     * The stream should be closed if it is not consumed entirely.
+     * @param collectionName    The collection name
+     * @param parameters        The search criteria
+     * @param pageSize          The page size (0 for the default of the service)
+     * @param profile           The parts of the items to keep (<code>null</code> for all)
+     */
+    public Stream<Item> searchAll(String collectionName, Map<String, Object> parameters, int pageSize,
+                                  ParseProfile profile) throws IOException {
+        if (parameters == null) {
+            return listAllItems(collectionName, pageSize, profile);
         }
-        StringBuilder href = new StringBuilder(searchLink.getHref() + "?");
+        return stream(searchURL(collectionName, parameters, 0, pageSize), profile);
+    }
+
+    /**
+     * Returns the first page of items that match the given criteria, searched with <code>POST /search</code>
+     * @param request   The search criteria
+     */
+    public ItemCollection search(SearchRequest request) throws IOException {
+        return search(request, null);
+    }
+    /**
+     * Returns the first page of items that match the given criteria, searched with <code>POST /search</code>,
+     * keeping only the parts of the items declared by the profile
+     * @param request   The search criteria
+     * @param profile   The parts of the items to keep (<code>null</code> for all)
+     */
+    public ItemCollection search(SearchRequest request, ParseProfile profile) throws IOException {
+        return fetchPage(new ItemPager.PageRequest(searchEndpoint(HttpMethod.POST), HttpMethod.POST, request, null, null), profile);
+    }
+    /**
+     * Returns all the items that match the given criteria, searched with <code>POST /search</code> and retrieved
+     * page by page as the stream is consumed. The pages are followed through their <code>next</code> links, whose
+     * body is merged into the criteria when the link asks for it. The stream should be closed if it is not
+     * consumed entirely. Retrieval errors are thrown as {@link java.io.UncheckedIOException}.
+     * @param request   The search criteria
+     */
+    public Stream<Item> searchAll(SearchRequest request) throws IOException {
+        return searchAll(request, null);
+    }
+    /**
+     * Returns all the items that match the given criteria, searched with <code>POST /search</code> and retrieved
+     * page by page as the stream is consumed, keeping only the parts of the items declared by the profile.
+     * The stream should be closed if it is not consumed entirely.
+     * @param request   The search criteria
+     * @param profile   The parts of the items to keep (<code>null</code> for all)
+     */
+    public Stream<Item> searchAll(SearchRequest request, ParseProfile profile) throws IOException {
+        return stream(new ItemPager.PageRequest(searchEndpoint(HttpMethod.POST), HttpMethod.POST, request, null, null), profile);
+    }
+
+    /**
+     * Iterates over the items of a POST search whose first page was already retrieved
+     * @param request   The search criteria
+     * @param firstPage The first page returned for the criteria
+     * @param profile   The parts of the items to keep (<code>null</code> for all)
+     */
+    ItemPager continueSearch(SearchRequest request, ItemCollection firstPage, ParseProfile profile) throws IOException {
+        return new ItemPager(new ItemPager.PageRequest(searchEndpoint(HttpMethod.POST), HttpMethod.POST, request, null, null),
+                             firstPage, page -> fetchPage(page, profile));
+    }
+
+    private Stream<Item> stream(URL firstPage, ParseProfile profile) {
+        return stream(new ItemPager.PageRequest(firstPage, HttpMethod.GET, null, null, null), profile);
+    }
+
+    private Stream<Item> stream(ItemPager.PageRequest firstPage, ParseProfile profile) {
+        final ItemPager pager = new ItemPager(firstPage, request -> fetchPage(request, profile));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pager, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                            .onClose(pager::close);
+    }
+
+    private ItemCollection fetchPage(ItemPager.PageRequest request, ParseProfile profile) throws IOException {
+        final HTTPResponse response = request.getMethod() == HttpMethod.POST
+                                      ? this.client.post(request.getUrl(), request.getBody(), "application/json", request.getHeaders(), true)
+                                      : this.client.get(request.getUrl(), request.getHeaders());
+        try (InputStream inStream = response.getResponseStream()) {
+            return new STACParser().parseItemCollectionResponse(inStream, profile);
+        }
+    }
+
+    private URL itemsURL(String collectionName, int pageNumber, int pageSize) throws MalformedURLException {
+        String href = this.stacURL + "/collections/" + collectionName + "/items";
+        if (pageNumber > 0 && pageSize > 0) {
+            href += "?page=" + pageNumber + "&limit=" + pageSize;
+        } else if (pageSize > 0) {
+            href += "?limit=" + pageSize;
+        }
+        return new URL(href);
+    }
+
+    private URL searchURL(String collectionName, Map<String, Object> parameters, int pageNumber, int pageSize) throws IOException {
+        StringBuilder href = new StringBuilder(searchEndpoint(HttpMethod.GET) + "?");
         for (Map.Entry<String, Object> entry : parameters.entrySet()) {
-            href.append(entry.getKey()).append("=").append(entry.getValue()).append("&");
+            href.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8)).append("=")
+                .append(URLEncoder.encode(String.valueOf(entry.getValue()), StandardCharsets.UTF_8)).append("&");
         }
-        href.append("collections=").append(collectionName).append("&");
-        if (pageNumber > 0 & pageSize > 0) {
-            href.append("page=").append(pageSize).append("&limit=").append(pageSize);
+        href.append("collections=").append(URLEncoder.encode(collectionName, StandardCharsets.UTF_8)).append("&");
+        if (pageNumber > 0 && pageSize > 0) {
+            href.append("page=").append(pageNumber).append("&limit=").append(pageSize);
+        } else if (pageSize > 0) {
+            href.append("limit=").append(pageSize);
         }
         if (href.charAt(href.length() - 1) == '&') {
             href.setLength(href.length() - 1);
         }
-        final HTTPResponse response = this.client.get(new URL(href.toString()));
-        try (InputStream inStream = response.getResponseStream()) {
-            return new STACParser().parseItemCollectionResponse(inStream);
+        return new URL(href.toString());
+    }
+
+    private URL searchEndpoint(HttpMethod method) throws IOException {
+        final CatalogCapabilities capabilities = getCapabilities();
+        final URL url = capabilities.getSearchURL(method);
+        if (url == null) {
+            throw new IOException("Search not supported on catalog " + capabilities.getCatalog().getId());
+        }
+        return url;
+    }
+
+    /**
+     * Retrieves the conformance classes from the conformance page of the service.
+     * Since they are only informative, an empty list is returned if the page cannot be retrieved.
+     */
+    private List<String> fetchConformance(Catalog catalog) {
+        try {
+            final Link link = catalog.getLinks() != null
+                              ? catalog.getLinks().stream().filter(l -> l != null && "conformance".equals(l.getRel()))
+                                       .findFirst().orElse(null)
+                              : null;
+            final URL url = new URL(link != null && link.getHref() != null ? link.getHref() : this.stacURL + "/conformance");
+            final List<String> conformsTo = fetch(url, Catalog.class, inStream -> new STACParser().parseCatalogResponse(inStream)).getConformsTo();
+            return conformsTo != null ? conformsTo : new ArrayList<>();
+        } catch (IOException e) {
+            logger.warning("Cannot retrieve the conformance classes of " + this.stacURL + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private ItemCollectionReader open(URL url, ParseProfile profile) throws IOException {
+        final HTTPResponse response = this.client.get(url);
+        final InputStream inStream = response.getResponseStream();
+        try {
+            return new STACParser().readItemCollectionResponse(inStream, profile);
+        } catch (IOException | RuntimeException e) {
+            inStream.close();
+            throw e;
         }
     }
 
+    /**
+     * Retrieves and parses a document, sharing the call with the identical ones in progress.
+     * @param url       The URL of the document
+     * @param type      The type of the result (part of the key, since the same URL may be parsed differently)
+     * @param parser    The parser of the response
+     */
+    private <T> T fetch(URL url, Class<T> type, ResponseParser<T> parser) throws IOException {
+        return this.flights.execute(type.getName() + " " + url, () -> {
+            final HTTPResponse response = this.client.get(url);
+            try (InputStream inStream = response.getResponseStream()) {
+                return parser.parse(inStream);
+            }
+        });
+    }
+
     /**
      * Downloads an entire item (all downloadable assets of the item)
      * @param item      The item
@@ -221,4 +538,8 @@ public class STACClient {
         return response.getResponseStream();
     }
 
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        T parse(InputStream stream) throws IOException;
+    }
 }
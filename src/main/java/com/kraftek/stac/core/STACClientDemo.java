@@ -6,7 +6,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class STACClientDemo {
 
@@ -32,24 +34,16 @@ public class STACClientDemo {
             Files.createDirectories(downloadFolder);
             System.out.println("Downloading assets to: " + downloadFolder);
 
-            // Pagination variables
-            int page = 1;
+            // The pages are followed through their 'next' links, the next one being retrieved while the current one is processed
             int limit = 10;
-            boolean hasMorePages = true;
-
-            // Loop through items in the collection
-            while (hasMorePages && page <= maxPages) {
-                System.out.println("Fetching page: " + page);
-
-                // Fetch items from the collection
-                ItemCollection items = client.listItems(collectionName, page, limit);
-                if (items.getFeatures() == null || items.getFeatures().isEmpty()) {
+            try (Stream<Item> items = client.listAllItems(collectionName, limit)) {
+                Iterator<Item> iterator = items.limit((long) maxPages * limit).iterator();
+                if (!iterator.hasNext()) {
                     System.out.println("No items found.");
-                    break;
                 }
-
                 // Process each item
-                for (Item item : items.getFeatures()) {
+                while (iterator.hasNext()) {
+                    Item item = iterator.next();
                     System.out.println("\nProcessing item: " + item.getId());
                     Map<String, Asset> assets = item.getAssets();
 
@@ -68,14 +62,6 @@ public class STACClientDemo {
                         }
                     }
                 }
-
-                // Check if there are more pages
-                PageContext context = items.getContext();
-                if (context != null && context.getReturned() < limit) {
-                    hasMorePages = false;
-                } else {
-                    page++;
-                }
             }
 
             System.out.println("All assets downloaded successfully.");
@@ -111,24 +97,16 @@ public class STACClientDemo {
                 searchParams.put("datetime", datetime);
             }
 
-            // Pagination variables
-            int page = 1;
+            // The pages are followed through their 'next' links, the next one being retrieved while the current one is processed
             int limit = 10;
-            boolean hasMorePages = true;
-
-            // Loop through search results
-            while (hasMorePages && page <= maxPages) {
-                System.out.println("Fetching page: " + page);
-
-                // Fetch search results
-                ItemCollection items = client.search(collectionName, searchParams, page, limit);
-                if (items.getFeatures() == null || items.getFeatures().isEmpty()) {
+            try (Stream<Item> items = client.searchAll(collectionName, searchParams, limit)) {
+                Iterator<Item> iterator = items.limit((long) maxPages * limit).iterator();
+                if (!iterator.hasNext()) {
                     System.out.println("No items found for the specified search parameters.");
-                    break;
                 }
-
                 // Process each item
-                for (Item item : items.getFeatures()) {
+                while (iterator.hasNext()) {
+                    Item item = iterator.next();
                     System.out.println("\nProcessing item: " + item.getId());
                     Map<String, Asset> assets = item.getAssets();
 
@@ -138,14 +116,6 @@ public class STACClientDemo {
                         System.out.println("  Asset Link: " + asset.getHref());
                     }
                 }
-
-                // Check if there are more pages
-                PageContext context = items.getContext();
-                if (context != null && context.getReturned() < limit) {
-                    hasMorePages = false;
-                } else {
-                    page++;
-                }
             }
 
             System.out.println("Search completed.");
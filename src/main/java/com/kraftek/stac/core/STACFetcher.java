@@ -1,7 +1,9 @@
 package com.kraftek.stac.core;
 
 import com.kraftek.stac.core.model.*;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class STACFetcher {
 
@@ -62,44 +64,31 @@ public class STACFetcher {
         System.out.println("Description: " + collection.getDescription());
 
         if (itemId == null) {
-            int page = 1;
             int limit = 10;
-            boolean hasMorePages = true;
-
-            while (hasMorePages && page <= maxPages) {
-                try {
-                    System.out.println("Fetching items for collection: " + collection.getId() + ", Page: " + page);
-                    ItemCollection items = client.listItems(collection.getId(), page, limit);
-
-                    if (items.getFeatures() == null || items.getFeatures().isEmpty()) {
-                        System.out.println("No items found for collection: " + collection.getId());
-                        break;
-                    }
-
-                    for (Item item : items.getFeatures()) {
-                        try {
-                            processItem(item, assetKey);
-                        } catch (Exception e) {
-                            System.err.println("Failed to process item: " + item.getId() + " - " + e.getMessage());
-                            e.printStackTrace();
-                        }
-                    }
-
-                    PageContext context = items.getContext();
-                    if (context != null && context.getReturned() < limit) {
-                        hasMorePages = false;
-                    } else {
-                        page++;
+            long maxItems = (long) maxPages * limit;
+            System.out.println("Fetching items for collection: " + collection.getId());
+            // the pages are followed through their 'next' links, the next one being retrieved while the current one is processed
+            try (Stream<Item> items = client.listAllItems(collection.getId(), limit)) {
+                long count = 0;
+                Iterator<Item> iterator = items.limit(maxItems).iterator();
+                while (iterator.hasNext()) {
+                    Item item = iterator.next();
+                    count++;
+                    try {
+                        processItem(item, assetKey);
+                    } catch (Exception e) {
+                        System.err.println("Failed to process item: " + item.getId() + " - " + e.getMessage());
+                        e.printStackTrace();
                     }
-                } catch (Exception e) {
-                    System.err.println("Failed to fetch items for collection: " + collection.getId() + ", Page: " + page + " - " + e.getMessage());
-                    e.printStackTrace();
-                    hasMorePages = false; // Skip to the next collection
                 }
-            }
-
-            if (page > maxPages) {
-                System.out.println("Reached maximum page limit for collection: " + collection.getId());
+                if (count == 0) {
+                    System.out.println("No items found for collection: " + collection.getId());
+                } else if (count == maxItems) {
+                    System.out.println("Reached maximum page limit for collection: " + collection.getId());
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to fetch items for collection: " + collection.getId() + " - " + e.getMessage());
+                e.printStackTrace();
             }
         } else {
             System.out.println("Fetching item: " + itemId);
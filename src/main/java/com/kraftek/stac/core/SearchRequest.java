@@ -0,0 +1,297 @@
+package com.kraftek.stac.core;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.kraftek.stac.core.model.Geometry;
+import com.kraftek.stac.core.model.GeometryType;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Criteria of an item search sent with <code>POST /search</code>.
+ * Unlike the query string of a GET search, the body can hold large criteria, such as an <code>intersects</code>
+ * polygon, a long list of identifiers or a CQL2 JSON filter. The body is written as JSON directly to the connection.
+ * Any other member of the body (for example, <code>sortby</code> or <code>fields</code>) can be added as a parameter.
+ *
+ * @author Cosmin Cara
+ */
+public class SearchRequest {
+    private static final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    private List<String> collections;
+    private List<String> ids;
+    private double[] bbox;
+    private Geometry<?> intersects;
+    private String datetime;
+    private Integer limit;
+    private Map<String, Object> query;
+    private Object filter;
+    private String filterLang;
+    private Map<String, Object> parameters;
+
+    public SearchRequest() {
+        super();
+    }
+
+    /**
+     * The collections to search in
+     */
+    public List<String> getCollections() {
+        return collections;
+    }
+
+    public void setCollections(List<String> collections) {
+        this.collections = collections;
+    }
+
+    public void setCollections(String... collections) {
+        this.collections = collections != null ? Arrays.asList(collections) : null;
+    }
+
+    /**
+     * The identifiers of the items to be returned
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * The bounding box that the items must intersect (minLon, minLat, maxLon, maxLat [, and heights])
+     */
+    public double[] getBbox() {
+        return bbox;
+    }
+
+    public void setBbox(double... bbox) {
+        if (bbox != null && bbox.length != 4 && bbox.length != 6) {
+            throw new IllegalArgumentException("A bounding box must have 4 or 6 values");
+        }
+        this.bbox = bbox;
+    }
+
+    /**
+     * The geometry that the items must intersect. It cannot be used together with a bounding box.
+     */
+    public Geometry<?> getIntersects() {
+        return intersects;
+    }
+
+    public void setIntersects(Geometry<?> intersects) {
+        this.intersects = intersects;
+    }
+
+    /**
+     * The date/time, or the interval (<code>start/end</code>, with <code>..</code> for an open end) of the items
+     */
+    public String getDatetime() {
+        return datetime;
+    }
+
+    public void setDatetime(String datetime) {
+        this.datetime = datetime;
+    }
+
+    /**
+     * Sets the interval of the items (UTC)
+     * @param start The start of the interval (<code>null</code> if open)
+     * @param end   The end of the interval (<code>null</code> if open)
+     */
+    public void setDatetime(LocalDateTime start, LocalDateTime end) {
+        this.datetime = (start != null ? dateTimeFormat.format(start) : "..") + "/" +
+                        (end != null ? dateTimeFormat.format(end) : "..");
+    }
+
+    /**
+     * The page size
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * The conditions on properties of the Query extension (for example, <code>{"eo:cloud_cover": {"lt": 10}}</code>)
+     */
+    public Map<String, Object> getQuery() {
+        return query;
+    }
+
+    public void setQuery(Map<String, Object> query) {
+        this.query = query;
+    }
+
+    /**
+     * The filter of the Filter extension, as an object serializable to JSON (for example, a map or a JSON node)
+     */
+    public Object getFilter() {
+        return filter;
+    }
+
+    public void setFilter(Object filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * The language of the filter (for example, <code>cql2-json</code>)
+     */
+    public String getFilterLang() {
+        return filterLang;
+    }
+
+    public void setFilterLang(String filterLang) {
+        this.filterLang = filterLang;
+    }
+
+    /**
+     * Other members of the body
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(Map<String, Object> parameters) {
+        this.parameters = parameters;
+    }
+
+    public void addParameter(String name, Object value) {
+        if (this.parameters == null) {
+            this.parameters = new LinkedHashMap<>();
+        }
+        this.parameters.put(name, value);
+    }
+
+    /**
+     * Writes the members of the body to an open JSON object. The members found in the overrides (such as the ones of
+     * a <code>next</code> link to be merged into the request) replace the ones of this request.
+     * @param generator The JSON generator, with an object codec
+     * @param overrides The members replacing the ones of the request (may be <code>null</code>)
+     */
+    void writeFields(JsonGenerator generator, Map<String, Object> overrides) throws IOException {
+        if (this.bbox != null && this.intersects != null) {
+            throw new IOException("A search cannot have both a bounding box and an intersecting geometry");
+        }
+        if (this.collections != null && !isOverridden(overrides, "collections")) {
+            writeStrings(generator, "collections", this.collections);
+        }
+        if (this.ids != null && !isOverridden(overrides, "ids")) {
+            writeStrings(generator, "ids", this.ids);
+        }
+        if (this.bbox != null && !isOverridden(overrides, "bbox")) {
+            generator.writeFieldName("bbox");
+            generator.writeArray(this.bbox, 0, this.bbox.length);
+        }
+        if (this.intersects != null && !isOverridden(overrides, "intersects")) {
+            generator.writeFieldName("intersects");
+            writeGeometry(generator, this.intersects);
+        }
+        if (this.datetime != null && !isOverridden(overrides, "datetime")) {
+            generator.writeStringField("datetime", this.datetime);
+        }
+        if (this.limit != null && !isOverridden(overrides, "limit")) {
+            generator.writeNumberField("limit", this.limit);
+        }
+        if (this.query != null && !isOverridden(overrides, "query")) {
+            generator.writeObjectField("query", this.query);
+        }
+        if (this.filter != null && !isOverridden(overrides, "filter")) {
+            generator.writeObjectField("filter", this.filter);
+        }
+        if (this.filterLang != null && !isOverridden(overrides, "filter-lang")) {
+            generator.writeStringField("filter-lang", this.filterLang);
+        }
+        if (this.parameters != null) {
+            for (Map.Entry<String, Object> entry : this.parameters.entrySet()) {
+                if (!isOverridden(overrides, entry.getKey())) {
+                    generator.writeObjectField(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (overrides != null) {
+            for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+                generator.writeObjectField(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this request, whose criteria can be changed independently of the ones of this request
+     */
+    SearchRequest copy() {
+        final SearchRequest copy = new SearchRequest();
+        copy.collections = this.collections != null ? new ArrayList<>(this.collections) : null;
+        copy.ids = this.ids != null ? new ArrayList<>(this.ids) : null;
+        copy.bbox = this.bbox != null ? this.bbox.clone() : null;
+        copy.intersects = this.intersects;
+        copy.datetime = this.datetime;
+        copy.limit = this.limit;
+        copy.query = this.query;
+        copy.filter = this.filter;
+        copy.filterLang = this.filterLang;
+        copy.parameters = this.parameters != null ? new LinkedHashMap<>(this.parameters) : null;
+        return copy;
+    }
+
+    private static boolean isOverridden(Map<String, Object> overrides, String name) {
+        return overrides != null && overrides.containsKey(name);
+    }
+
+    private static void writeStrings(JsonGenerator generator, String name, List<String> values) throws IOException {
+        generator.writeArrayFieldStart(name);
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes a geometry as GeoJSON
+     */
+    private static void writeGeometry(JsonGenerator generator, Geometry<?> geometry) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", geometry.getType().name());
+        if (geometry.getType() == GeometryType.GeometryCollection) {
+            generator.writeArrayFieldStart("geometries");
+            if (geometry.getGeometries() != null) {
+                for (Geometry<?> member : geometry.getGeometries()) {
+                    writeGeometry(generator, member);
+                }
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeFieldName("coordinates");
+            writeCoordinates(generator, geometry.getCoordinates());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeCoordinates(JsonGenerator generator, Object coordinates) throws IOException {
+        if (coordinates instanceof double[]) {
+            final double[] position = (double[]) coordinates;
+            generator.writeArray(position, 0, position.length);
+        } else if (coordinates instanceof Object[]) {
+            generator.writeStartArray();
+            for (Object member : (Object[]) coordinates) {
+                writeCoordinates(generator, member);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeStartArray();
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.kraftek.stac.core;
+
+import com.kraftek.stac.core.model.Item;
+import com.kraftek.stac.core.model.ItemCollection;
+import com.kraftek.stac.core.parser.ParseProfile;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Search split into shards (parts of the criteria, such as time intervals or tiles) that are run concurrently.
+ * The first page of each shard is checked before its items are retrieved: a shard that matches more items than
+ * allowed (for example, more than the maximum paging depth of the service) is split further, as long as it can be
+ * split. A shard without items costs a single request.
+ * If the service does not report the number of matched items, a shard is split once more than the allowed number
+ * of items were retrieved from it (the smaller shards then retrieve these items again, but they are not delivered
+ * twice).
+ * The items found in several shards (such as the ones on the bounds shared by two shards) are delivered only once,
+ * by their collection and identifier.
+ * @param <S>   The type of the part of the criteria that describes a shard
+ *
+ * @author Cosmin Cara
+ */
+public abstract class ShardedSearch<S> {
+    protected final Logger logger = Logger.getLogger(getClass().getName());
+    protected final STACClient client;
+    protected final SearchRequest criteria;
+    private int parallelism = 4;
+    private int maxItemsPerShard = 10000;
+    private ParseProfile profile;
+
+    /**
+     * Creates a search that will run on the given client.
+     * @param client    The client
+     * @param criteria  The search criteria (copied), to be restricted for each shard
+     */
+    protected ShardedSearch(STACClient client, SearchRequest criteria) {
+        if (client == null || criteria == null) {
+            throw new IllegalArgumentException("client and criteria cannot be null");
+        }
+        this.client = client;
+        this.criteria = criteria.copy();
+    }
+
+    /**
+     * The number of shards searched concurrently
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * The maximum number of items that a shard can match before being split. It should not exceed the maximum
+     * paging depth of the service (often 10000).
+     */
+    public int getMaxItemsPerShard() {
+        return maxItemsPerShard;
+    }
+
+    public void setMaxItemsPerShard(int maxItemsPerShard) {
+        if (maxItemsPerShard <= 0) {
+            throw new IllegalArgumentException("maxItemsPerShard must be positive");
+        }
+        this.maxItemsPerShard = maxItemsPerShard;
+    }
+
+    /**
+     * The parts of the items to keep (<code>null</code>, the default, for all).
+     * If the search covers several collections, the <code>collection</code> field should be kept: without it,
+     * the items of different collections having the same identifier are delivered only once.
+     */
+    public ParseProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(ParseProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Runs the search and returns the items found
+     */
+    public List<Item> execute() throws IOException {
+        final List<Item> items = new ArrayList<>();
+        execute(items::add);
+        return items;
+    }
+
+    /**
+     * Runs the search and passes the items to the given consumer, as they are found. The consumer is called by one
+     * thread at a time, but not always the same one.
+     * @param consumer  The consumer of the items
+     * @return  The number of items passed to the consumer
+     */
+    public long execute(Consumer<Item> consumer) throws IOException {
+        final Run run = new Run(consumer);
+        try {
+            for (S shard : shards()) {
+                run.submit(shard);
+            }
+            run.phaser.awaitAdvanceInterruptibly(run.phaser.arrive());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail(new InterruptedIOException("Interrupted while searching"));
+        } finally {
+            run.executor.shutdownNow();
+        }
+        final Throwable failure = run.failure.get();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return run.count;
+    }
+
+    /**
+     * Returns the initial shards of the search
+     */
+    protected abstract List<S> shards() throws IOException;
+
+    /**
+     * Splits a shard into smaller ones, or returns <code>null</code> if it cannot be split further
+     * @param shard The shard
+     */
+    protected abstract List<S> split(S shard);
+
+    /**
+     * Restricts the criteria to the given shard
+     * @param request   A copy of the search criteria
+     * @param shard     The shard
+     */
+    protected abstract void restrict(SearchRequest request, S shard);
+
+    /**
+     * Returns a description of a shard, for the messages of the search
+     * @param shard The shard
+     */
+    protected String describe(S shard) {
+        return String.valueOf(shard);
+    }
+
+    /**
+     * Returns the number of items matched by a search, or -1 if the service does not report it
+     */
+    private static long matched(ItemCollection page) {
+        if (page.getNumberMatched() > 0) {
+            return page.getNumberMatched();
+        }
+        if (page.getContext() != null && page.getContext().getMatched() > 0) {
+            return page.getContext().getMatched();
+        }
+        // an empty page matches nothing, whatever the service reports
+        return page.getFeatures() == null || page.getFeatures().isEmpty() ? 0 : -1;
+    }
+
+    /**
+     * The state of an execution of the search
+     */
+    private final class Run {
+        private final Consumer<Item> consumer;
+        private final ExecutorService executor;
+        private final Phaser phaser;
+        private final Set<List<String>> delivered;
+        private final AtomicReference<Throwable> failure;
+        private final AtomicBoolean countUnknown;
+        private long count;
+
+        private Run(Consumer<Item> consumer) {
+            this.consumer = consumer;
+            this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+                final Thread thread = new Thread(runnable, "stac-shard");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // the caller is a party until all the initial shards are submitted
+            this.phaser = new Phaser(1);
+            this.delivered = ConcurrentHashMap.newKeySet();
+            this.failure = new AtomicReference<>();
+            this.countUnknown = new AtomicBoolean();
+        }
+
+        private void submit(S shard) {
+            this.phaser.register();
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        search(shard);
+                    } catch (UncheckedIOException e) {
+                        fail(e.getCause());
+                    } catch (Throwable t) {
+                        fail(t);
+                    } finally {
+                        this.phaser.arriveAndDeregister();
+                    }
+                });
+            } catch (RuntimeException e) {
+                this.phaser.arriveAndDeregister();
+                throw e;
+            }
+        }
+
+        private void search(S shard) throws IOException {
+            if (this.failure.get() != null) {
+                return;
+            }
+            final SearchRequest request = criteria.copy();
+            restrict(request, shard);
+            final ItemCollection first = client.search(request, profile);
+            final long matched = matched(first);
+            if (matched > maxItemsPerShard) {
+                if (trySplit(shard)) {
+                    return;
+                }
+                logger.warning(String.format("Shard %s matches %d items, but cannot be split further", describe(shard), matched));
+            }
+            if (matched < 0 && this.countUnknown.compareAndSet(false, true)) {
+                logger.warning(String.format("The service does not report the number of matched items, the shards are split " +
+                                             "after retrieving %d items", maxItemsPerShard));
+            }
+            // without a count, the shard is checked while its items are retrieved
+            boolean checked = matched >= 0;
+            long retrieved = 0;
+            final ItemPager pager = client.continueSearch(request, first, profile);
+            try {
+                while (this.failure.get() == null && pager.hasNext()) {
+                    if (!checked && retrieved == maxItemsPerShard) {
+                        if (trySplit(shard)) {
+                            return;
+                        }
+                        logger.warning(String.format("Shard %s matches more than %d items, but cannot be split further",
+                                                     describe(shard), retrieved));
+                        checked = true;
+                    }
+                    deliver(pager.next());
+                    retrieved++;
+                }
+            } finally {
+                pager.close();
+            }
+        }
+
+        /**
+         * Splits the shard and submits its parts, or returns <code>false</code> if it cannot be split
+         */
+        private boolean trySplit(S shard) {
+            final List<S> parts = split(shard);
+            if (parts == null || parts.size() < 2) {
+                return false;
+            }
+            // the new shards are registered before this one arrives, so the search cannot end meanwhile
+            for (S part : parts) {
+                submit(part);
+            }
+            return true;
+        }
+
+        private void deliver(Item item) {
+            // identifiers are unique only within a collection
+            final Object collection = item.getField("collection");
+            if (item.getId() == null ||
+                    this.delivered.add(Arrays.asList(collection != null ? collection.toString() : null, item.getId()))) {
+                synchronized (this) {
+                    this.consumer.accept(item);
+                    this.count++;
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            this.failure.compareAndSet(null, t);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.kraftek.stac.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces identical concurrent calls: while a call for a key is in progress, the other callers for the same key
+ * wait for its outcome instead of performing the call themselves. Nothing is kept after the call completes.
+ *
+ * @author Cosmin Cara
+ */
+final class SingleFlight {
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight;
+
+    SingleFlight() {
+        this.inFlight = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Performs the call, or joins the one already in progress for the same key.
+     * @param key       The key identifying the call
+     * @param supplier  The call
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, IOSupplier<T> supplier) throws IOException {
+        final CompletableFuture<Object> flight = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = this.inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+        try {
+            final T value = supplier.get();
+            flight.complete(value);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, flight);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical request");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.kraftek.stac.core;
+
+import com.kraftek.stac.core.model.Collection;
+import com.kraftek.stac.core.model.Extent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search over a large area, split into the tiles of a grid searched concurrently. A tile that matches too many items
+ * is split into four, down to a minimum size.
+ * The tiles outside the spatial extents of the searched collections are not searched. The items crossing the borders
+ * of tiles are delivered only once.
+ * For example, to retrieve the Sentinel-2 items of a continent:
+ * <pre>
+ *     SearchRequest criteria = new SearchRequest();
+ *     criteria.setCollections("sentinel-2-l2a");
+ *     criteria.setBbox(-25.0, 34.0, 45.0, 72.0);
+ *     criteria.setDatetime(start, end);
+ *     SpatialTiledSearch search = new SpatialTiledSearch(client, criteria, 8, 6);
+ *     search.execute(item -&gt; ...);
+ * </pre>
+ *
+ * @author Cosmin Cara
+ */
+public class SpatialTiledSearch extends ShardedSearch<double[]> {
+    private final double[] bbox;
+    private final int columns;
+    private final int rows;
+    private double minTileSize = 0.01;
+
+    /**
+     * Creates a search over the bounding box of the criteria.
+     * @param client    The client
+     * @param criteria  The search criteria, with a bounding box (replaced by the one of each tile)
+     * @param columns   The number of columns of the grid
+     * @param rows      The number of rows of the grid
+     */
+    public SpatialTiledSearch(STACClient client, SearchRequest criteria, int columns, int rows) {
+        super(client, criteria);
+        if (criteria.getBbox() == null || criteria.getIntersects() != null) {
+            throw new IllegalArgumentException("The criteria must have a bounding box, and no intersecting geometry");
+        }
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("columns and rows must be positive");
+        }
+        final double[] box = criteria.getBbox();
+        this.bbox = box.length == 6 ? new double[] { box[0], box[1], box[3], box[4] } : box.clone();
+        if (this.bbox[0] >= this.bbox[2] || this.bbox[1] >= this.bbox[3]) {
+            throw new IllegalArgumentException("Invalid bounding box (crossing the antimeridian is not supported)");
+        }
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * The size (in degrees) below which a tile is no longer split
+     */
+    public double getMinTileSize() {
+        return minTileSize;
+    }
+
+    public void setMinTileSize(double minTileSize) {
+        if (minTileSize <= 0) {
+            throw new IllegalArgumentException("minTileSize must be positive");
+        }
+        this.minTileSize = minTileSize;
+    }
+
+    @Override
+    protected List<double[]> shards() {
+        final List<double[]> extents = collectionExtents();
+        final double width = (this.bbox[2] - this.bbox[0]) / this.columns;
+        final double height = (this.bbox[3] - this.bbox[1]) / this.rows;
+        final List<double[]> tiles = new ArrayList<>(this.columns * this.rows);
+        for (int row = 0; row < this.rows; row++) {
+            for (int column = 0; column < this.columns; column++) {
+                // the last tiles end exactly on the bounding box, whatever the rounding
+                final double[] tile = new double[] {
+                        this.bbox[0] + column * width,
+                        this.bbox[1] + row * height,
+                        column == this.columns - 1 ? this.bbox[2] : this.bbox[0] + (column + 1) * width,
+                        row == this.rows - 1 ? this.bbox[3] : this.bbox[1] + (row + 1) * height
+                };
+                if (extents == null || extents.stream().anyMatch(extent -> intersect(tile, extent))) {
+                    tiles.add(tile);
+                }
+            }
+        }
+        if (tiles.size() < this.columns * this.rows) {
+            logger.fine(String.format("%d tiles out of %d are outside the extents of the collections",
+                                      this.columns * this.rows - tiles.size(), this.columns * this.rows));
+        }
+        return tiles;
+    }
+
+    @Override
+    protected List<double[]> split(double[] tile) {
+        final double halfWidth = (tile[2] - tile[0]) / 2;
+        final double halfHeight = (tile[3] - tile[1]) / 2;
+        if (halfWidth < this.minTileSize || halfHeight < this.minTileSize) {
+            return null;
+        }
+        final double x = tile[0] + halfWidth;
+        final double y = tile[1] + halfHeight;
+        return Arrays.asList(new double[] { tile[0], tile[1], x, y },
+                             new double[] { x, tile[1], tile[2], y },
+                             new double[] { tile[0], y, x, tile[3] },
+                             new double[] { x, y, tile[2], tile[3] });
+    }
+
+    @Override
+    protected void restrict(SearchRequest request, double[] tile) {
+        request.setBbox(tile);
+    }
+
+    @Override
+    protected String describe(double[] tile) {
+        return Arrays.toString(tile);
+    }
+
+    /**
+     * Returns the overall bounding boxes of the searched collections, or <code>null</code> if any of them
+     * is not known (in which case no tile is excluded)
+     */
+    private List<double[]> collectionExtents() {
+        if (this.criteria.getCollections() == null || this.criteria.getCollections().isEmpty()) {
+            return null;
+        }
+        final List<double[]> extents = new ArrayList<>();
+        for (String name : this.criteria.getCollections()) {
+            try {
+                final Collection collection = this.client.getCollection(name);
+                final Extent extent = collection != null ? collection.getExtent() : null;
+                final double[] box = extent != null && extent.getSpatial() != null ? extent.getSpatial().getBbox() : null;
+                if (box == null || (box.length != 4 && box.length != 6)) {
+                    return null;
+                }
+                extents.add(box.length == 6 ? new double[] { box[0], box[1], box[3], box[4] } : box);
+            } catch (IOException e) {
+                logger.warning("Cannot retrieve the extent of the collection " + name + ": " + e.getMessage());
+                return null;
+            }
+        }
+        return extents;
+    }
+
+    private static boolean intersect(double[] tile, double[] extent) {
+        // an extent crossing the antimeridian is not checked
+        return extent[0] > extent[2] ||
+                (tile[0] <= extent[2] && extent[0] <= tile[2] && tile[1] <= extent[3] && extent[1] <= tile[3]);
+    }
+}
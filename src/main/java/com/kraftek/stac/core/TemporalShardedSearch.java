@@ -0,0 +1,97 @@
+package com.kraftek.stac.core;
+
+import ro.cs.tao.utils.DateUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Search over a long period, split into intervals searched concurrently. An interval that matches too many items
+ * is bisected, down to a minimum duration.
+ * For example, to retrieve the Sentinel-2 items of an area over several years:
+ * <pre>
+ *     SearchRequest criteria = new SearchRequest();
+ *     criteria.setCollections("sentinel-2-l2a");
+ *     criteria.setIntersects(area);
+ *     criteria.setLimit(500);
+ *     TemporalShardedSearch search = new TemporalShardedSearch(client, criteria, start, end);
+ *     search.setParallelism(8);
+ *     search.execute(item -&gt; ...);
+ * </pre>
+ *
+ * @author Cosmin Cara
+ */
+public class TemporalShardedSearch extends ShardedSearch<LocalDateTime[]> {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private int shardCount = 8;
+    private Duration minDuration = Duration.ofHours(1);
+
+    /**
+     * Creates a search over the given period (UTC).
+     * @param client    The client
+     * @param criteria  The search criteria (their date/time is replaced by the one of each interval)
+     * @param start     The start of the period
+     * @param end       The end of the period
+     */
+    public TemporalShardedSearch(STACClient client, SearchRequest criteria, LocalDateTime start, LocalDateTime end) {
+        super(client, criteria);
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new IllegalArgumentException("Invalid period");
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * The number of intervals the period is initially split into
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * The duration below which an interval is no longer bisected
+     */
+    public Duration getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(Duration minDuration) {
+        if (minDuration == null || minDuration.isNegative() || minDuration.isZero()) {
+            throw new IllegalArgumentException("minDuration must be positive");
+        }
+        this.minDuration = minDuration;
+    }
+
+    @Override
+    protected List<LocalDateTime[]> shards() {
+        return DateUtils.splitIntoIntervals(this.start, this.end, this.shardCount);
+    }
+
+    @Override
+    protected List<LocalDateTime[]> split(LocalDateTime[] interval) {
+        if (Duration.between(interval[0], interval[1]).compareTo(this.minDuration.multipliedBy(2)) < 0) {
+            return null;
+        }
+        return DateUtils.splitIntoIntervals(interval[0], interval[1], 2);
+    }
+
+    @Override
+    protected void restrict(SearchRequest request, LocalDateTime[] interval) {
+        request.setDatetime(interval[0], interval[1]);
+    }
+
+    @Override
+    protected String describe(LocalDateTime[] interval) {
+        return interval[0] + "/" + interval[1];
+    }
+}
@@ -0,0 +1,147 @@
+package com.kraftek.stac.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches the token obtained for a TOKEN authentication and refreshes it before it expires.
+ * When several threads need a new token at the same time, only one of them performs the login,
+ * while the others wait for its outcome.
+ *
+ * @author Cosmin Cara
+ */
+final class TokenManager {
+    private static final long MAX_REFRESH_AHEAD = 30_000;
+    private final Logger logger = Logger.getLogger(TokenManager.class.getName());
+    private final TokenProvider provider;
+    private volatile Token current;
+    private CompletableFuture<Token> refreshing;
+
+    TokenManager(TokenProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Returns a valid token, performing the login only if there is no cached token or if it is about to expire.
+     */
+    String getToken() throws IOException {
+        final Token token = this.current;
+        final long now = System.currentTimeMillis();
+        if (token == null || token.isExpired(now)) {
+            return refresh(token, true).value;
+        }
+        if (token.shouldRefresh(now)) {
+            // The token is still valid: one thread refreshes it, the others keep using it meanwhile
+            try {
+                return refresh(token, false).value;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Cannot refresh the token ahead of its expiration", e);
+            }
+        }
+        return token.value;
+    }
+
+    /**
+     * Forces a new login, unless another thread already replaced the rejected token.
+     * @param rejected  The token that was rejected by the server
+     */
+    String forceRefresh(String rejected) throws IOException {
+        final Token token = this.current;
+        if (token != null && !token.value.equals(rejected) && !token.isExpired(System.currentTimeMillis())) {
+            return token.value;
+        }
+        return refresh(token, true).value;
+    }
+
+    private Token refresh(Token stale, boolean wait) throws IOException {
+        final CompletableFuture<Token> flight;
+        boolean owner = false;
+        synchronized (this) {
+            if (this.current != stale) {
+                // Another thread completed a refresh since the caller looked at the token
+                return this.current;
+            }
+            if (this.refreshing == null) {
+                this.refreshing = new CompletableFuture<>();
+                owner = true;
+            } else if (!wait) {
+                return stale;
+            }
+            flight = this.refreshing;
+        }
+        if (owner) {
+            try {
+                final Token token = this.provider.login();
+                if (token == null || token.value == null) {
+                    throw new IOException("The login response did not contain a token");
+                }
+                this.current = token;
+                flight.complete(token);
+                return token;
+            } catch (IOException | RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                synchronized (this) {
+                    this.refreshing = null;
+                }
+            }
+        }
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the token refresh");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Performs the actual login.
+     */
+    @FunctionalInterface
+    interface TokenProvider {
+        Token login() throws IOException;
+    }
+
+    /**
+     * A token value together with its expiration time.
+     */
+    static final class Token {
+        private final String value;
+        private final long expiresAt;
+        private final long refreshAt;
+
+        /**
+         * @param value     The token value
+         * @param lifetime  The validity of the token, in milliseconds
+         */
+        Token(String value, long lifetime) {
+            this.value = value;
+            final long now = System.currentTimeMillis();
+            this.expiresAt = now + lifetime;
+            this.refreshAt = this.expiresAt - Math.min(MAX_REFRESH_AHEAD, lifetime / 5);
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        boolean isExpired(long now) {
+            return now >= this.expiresAt;
+        }
+
+        boolean shouldRefresh(long now) {
+            return now >= this.refreshAt;
+        }
+    }
+}
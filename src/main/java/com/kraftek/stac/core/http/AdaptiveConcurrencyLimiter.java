@@ -0,0 +1,206 @@
+package com.kraftek.stac.core.http;
+
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Limits the number of requests in flight to each host, adapting the limit to the behaviour of the host
+ * (additive increase, multiplicative decrease):
+ * - while the latency stays close to the best latency observed, the limit grows by one request per round trip;
+ * - when the host answers with 429 or 503, or the requests time out, the limit is halved;
+ * - when the latency grows well above the best latency observed, the limit is reduced by 10%.
+ *
+ * @author Cosmin Cara
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final AdaptiveConcurrencyLimiter shared = new AdaptiveConcurrencyLimiter(16, 1, 256);
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final long MIN_DECREASE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private final Logger logger = Logger.getLogger(AdaptiveConcurrencyLimiter.class.getName());
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final Map<String, HostLimit> limits;
+
+    /**
+     * Creates a limiter.
+     * @param initialLimit  The number of requests in flight allowed to a host before any feedback is received
+     * @param minLimit      The lowest value the limit can be reduced to
+     * @param maxLimit      The highest value the limit can grow to
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits");
+        }
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the limiter shared by all the clients in this JVM
+     */
+    public static AdaptiveConcurrencyLimiter shared() {
+        return shared;
+    }
+
+    /**
+     * Returns the current limit for the host of the given URL
+     * @param url   The URL
+     */
+    public int getLimit(URL url) {
+        return hostLimit(url).currentLimit();
+    }
+
+    /**
+     * Waits until a new request can be sent to the host of the given URL
+     * @param url   The URL of the request
+     */
+    public Permit acquire(URL url) throws InterruptedIOException {
+        final HostLimit hostLimit = hostLimit(url);
+        try {
+            hostLimit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a request to " + url.getHost());
+        }
+        return new Permit(hostLimit, System.nanoTime());
+    }
+
+    private HostLimit hostLimit(URL url) {
+        final String key = url.getHost() + ":" + (url.getPort() > 0 ? url.getPort() : url.getDefaultPort());
+        return this.limits.computeIfAbsent(key, HostLimit::new);
+    }
+
+    /**
+     * A slot for one request in flight. Exactly one of the methods must be called when the request completes.
+     */
+    public static final class Permit {
+        private final HostLimit hostLimit;
+        private final long start;
+        private boolean released;
+
+        private Permit(HostLimit hostLimit, long start) {
+            this.hostLimit = hostLimit;
+            this.start = start;
+        }
+
+        /**
+         * Releases the slot, using the status code of the response as feedback
+         * @param statusCode    The HTTP status code
+         */
+        public void onResponse(int statusCode) {
+            if (statusCode == 429 || statusCode == 503) {
+                release(Outcome.OVERLOAD);
+            } else if (statusCode >= 500) {
+                // other server errors tell nothing about the load
+                release(Outcome.IGNORE);
+            } else {
+                release(Outcome.SUCCESS);
+            }
+        }
+
+        /**
+         * Releases the slot after a request that timed out
+         */
+        public void onTimeout() {
+            release(Outcome.OVERLOAD);
+        }
+
+        /**
+         * Releases the slot without any feedback (for example, after a failure unrelated to the load)
+         */
+        public void onIgnore() {
+            release(Outcome.IGNORE);
+        }
+
+        private void release(Outcome outcome) {
+            if (!this.released) {
+                this.released = true;
+                this.hostLimit.release(outcome, System.nanoTime() - this.start);
+            }
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        OVERLOAD,
+        IGNORE
+    }
+
+    private final class HostLimit {
+        private final String host;
+        private double limit;
+        private int inFlight;
+        private long bestLatency = Long.MAX_VALUE;
+        private double smoothedLatency;
+        private long lastDecrease;
+
+        HostLimit(String host) {
+            this.host = host;
+            this.limit = initialLimit;
+            // nanoTime has an arbitrary origin, so the first decrease is allowed explicitly
+            this.lastDecrease = System.nanoTime() - MIN_DECREASE_INTERVAL;
+        }
+
+        synchronized int currentLimit() {
+            return (int) this.limit;
+        }
+
+        synchronized void acquire() throws InterruptedException {
+            while (this.inFlight >= (int) this.limit) {
+                wait();
+            }
+            this.inFlight++;
+        }
+
+        synchronized void release(Outcome outcome, long latency) {
+            final int inFlightBefore = this.inFlight;
+            this.inFlight--;
+            final long now = System.nanoTime();
+            switch (outcome) {
+                case OVERLOAD:
+                    decrease(BACKOFF_RATIO, now);
+                    break;
+                case SUCCESS:
+                    this.smoothedLatency = this.smoothedLatency == 0
+                            ? latency : 0.9 * this.smoothedLatency + 0.1 * latency;
+                    if (latency < this.bestLatency) {
+                        this.bestLatency = latency;
+                    } else {
+                        // lets the baseline follow a permanent change of the latency of the host
+                        this.bestLatency += (long) ((latency - this.bestLatency) * 0.001);
+                    }
+                    if (this.smoothedLatency > LATENCY_TOLERANCE * this.bestLatency) {
+                        decrease(LATENCY_BACKOFF_RATIO, now);
+                    } else if (inFlightBefore * 2 >= (int) this.limit) {
+                        // grow only when the limit is actually used, by one request per round trip
+                        this.limit = Math.min(maxLimit, this.limit + 1.0 / this.limit);
+                    }
+                    break;
+                case IGNORE:
+                default:
+                    break;
+            }
+            notifyAll();
+        }
+
+        private void decrease(double ratio, long now) {
+            // a burst of rejected requests accounts for a single decrease
+            if (now - this.lastDecrease >= Math.max(MIN_DECREASE_INTERVAL, (long) this.smoothedLatency)) {
+                final double previous = this.limit;
+                this.limit = Math.max(minLimit, this.limit * ratio);
+                this.lastDecrease = now;
+                logger.fine(String.format("Concurrency limit for %s reduced from %.1f to %.1f",
+                                          this.host, previous, this.limit));
+            }
+        }
+    }
+}
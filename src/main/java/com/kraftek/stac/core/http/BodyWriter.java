@@ -0,0 +1,18 @@
+package com.kraftek.stac.core.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the body of a request directly to the connection output stream.
+ *
+ * @author Cosmin Cara
+ */
+@FunctionalInterface
+public interface BodyWriter {
+    /**
+     * Writes the content to the given stream. The stream must not be closed by the writer.
+     * @param out   The output stream of the connection
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,144 @@
+package com.kraftek.stac.core.http;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Negotiates the compression of the responses and decodes them while they are read.
+ * The gzip and deflate encodings are supported out of the box. Other encodings (such as br) can be
+ * added by registering a decoder for them, and they are advertised to the server only once registered.
+ *
+ * @author Cosmin Cara
+ */
+public class ContentDecoding {
+    private final Map<String, Decoder> decoders;
+    private volatile String acceptEncoding;
+
+    /**
+     * Creates an instance that supports gzip and deflate
+     */
+    public ContentDecoding() {
+        this.decoders = new LinkedHashMap<>();
+        register("gzip", ContentDecoding::gunzip);
+        register("x-gzip", ContentDecoding::gunzip);
+        register("deflate", ContentDecoding::inflate);
+    }
+
+    /**
+     * Registers (or replaces) the decoder of a content encoding.
+     * @param encoding  The content encoding token (for example, <code>br</code>)
+     * @param decoder   The decoder
+     */
+    public synchronized void register(String encoding, Decoder decoder) {
+        this.decoders.put(encoding.toLowerCase(), decoder);
+        this.acceptEncoding = this.decoders.keySet().stream()
+                                           .filter(e -> !e.startsWith("x-"))
+                                           .reduce((a, b) -> a + ", " + b).orElse("identity");
+    }
+
+    /**
+     * Returns the value of the <code>Accept-Encoding</code> header corresponding to the registered decoders
+     */
+    public String getAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    /**
+     * Returns a response whose stream yields the decoded content, updating the given statistics while it is read.
+     * @param response      The response as received from the transport
+     * @param statistics    The statistics to update
+     */
+    public TransportResponse decode(TransportResponse response, TransferStatistics statistics) throws IOException {
+        final InputStream raw = response.getResponseStream();
+        final String contentEncoding = response.getResponseHeader("Content-Encoding");
+        final boolean encoded = contentEncoding != null && !contentEncoding.trim().isEmpty() &&
+                !"identity".equalsIgnoreCase(contentEncoding.trim());
+        statistics.countResponse(encoded);
+        if (raw == null) {
+            return response;
+        }
+        InputStream stream = statistics.countWire(raw);
+        if (encoded) {
+            // Encodings are listed in the order they were applied, so they are undone in reverse order
+            final String[] encodings = contentEncoding.split(",");
+            try {
+                for (int i = encodings.length - 1; i >= 0; i--) {
+                    final String encoding = encodings[i].trim().toLowerCase();
+                    if (encoding.isEmpty() || "identity".equals(encoding)) {
+                        continue;
+                    }
+                    final Decoder decoder;
+                    synchronized (this) {
+                        decoder = this.decoders.get(encoding);
+                    }
+                    if (decoder == null) {
+                        throw new IOException("Unsupported content encoding: " + encoding);
+                    }
+                    stream = decoder.decode(stream);
+                }
+            } catch (IOException | RuntimeException e) {
+                // the decoders read the header of the content, which may be corrupted or time out:
+                // the connection has to be released in any case
+                response.dispose();
+                throw e;
+            }
+        }
+        return new TransportResponse(response.getStatusCode(), response.getProtocol(), response.getHeaders(),
+                                     statistics.countContent(stream), response::dispose);
+    }
+
+    private static InputStream gunzip(InputStream in) throws IOException {
+        final PushbackInputStream stream = new PushbackInputStream(in, 1);
+        final int first = stream.read();
+        if (first == -1) {
+            // Some servers send the header on empty bodies
+            return stream;
+        }
+        stream.unread(first);
+        try {
+            return new GZIPInputStream(stream, 8192);
+        } catch (EOFException e) {
+            throw new IOException("Truncated gzip content", e);
+        }
+    }
+
+    private static InputStream inflate(InputStream in) throws IOException {
+        final PushbackInputStream stream = new PushbackInputStream(in, 2);
+        final byte[] header = new byte[2];
+        final int count = stream.read(header);
+        if (count <= 0) {
+            return stream;
+        }
+        stream.unread(header, 0, count);
+        // RFC 9110 mandates the zlib wrapper, but some servers send a raw deflate stream
+        final boolean zlib = count == 2 && (header[0] & 0x0F) == 8 &&
+                (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+        final Inflater inflater = new Inflater(!zlib);
+        return new FilterInputStream(new InflaterInputStream(stream, inflater, 8192)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps an encoded stream into a stream that yields the decoded content.
+     */
+    @FunctionalInterface
+    public interface Decoder {
+        InputStream decode(InputStream encoded) throws IOException;
+    }
+}
@@ -0,0 +1,669 @@
+package com.kraftek.stac.core.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Size-bounded cache of (decoded) HTTP responses, stored on disk so that it survives restarts.
+ * Each entry consists of a <code>.body</code> file and a <code>.meta</code> file (holding the content type,
+ * the validators and the expiration time). Fresh entries are served without contacting the server, while stale
+ * entries are revalidated using <code>If-None-Match</code> and <code>If-Modified-Since</code>.
+ * The least recently used entries are evicted when the size of the cache exceeds the configured maximum.
+ * Only JSON responses (or responses without a content type) no larger than the maximum size of an entry are cached,
+ * so that the downloads of assets do not go through the cache.
+ *
+ * @author Cosmin Cara
+ */
+public class DiskResponseCache {
+    private static final String BODY = ".body";
+    private static final String META = ".meta";
+    private static final String TEMP = ".tmp";
+    private static final int DRAIN_LIMIT = 8192;
+    private final Logger logger = Logger.getLogger(DiskResponseCache.class.getName());
+    private final Path directory;
+    private final long maxSize;
+    private final LinkedHashMap<String, Long> index;
+    private final LongAdder hits;
+    private final LongAdder revalidations;
+    private final LongAdder misses;
+    private long size;
+    private volatile long defaultTtl = TimeUnit.MINUTES.toMillis(5);
+    private volatile long maxEntrySize;
+
+    /**
+     * Creates a cache in the given directory, picking up the entries left by a previous run.
+     * @param directory The directory of the cache (it is created if it does not exist)
+     * @param maxSize   The maximum size, in bytes, of the cached bodies
+     */
+    public DiskResponseCache(Path directory, long maxSize) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory cannot be null");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = maxSize;
+        this.maxEntrySize = Math.min(maxSize, 16L * 1024 * 1024);
+        this.index = new LinkedHashMap<>(64, 0.75f, true);
+        this.hits = new LongAdder();
+        this.revalidations = new LongAdder();
+        this.misses = new LongAdder();
+        loadIndex();
+    }
+
+    /**
+     * Computes the key of an entry from the parts that identify the response (for example, the URL and the user)
+     */
+    public static String key(String... parts) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                if (part != null) {
+                    digest.update(part.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0);
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The validity (in milliseconds) of the responses for which the server does not state one
+     */
+    public long getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public void setDefaultTtl(long defaultTtl) {
+        this.defaultTtl = defaultTtl;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * The maximum size, in bytes, of a cached body (by default, 16MB or the maximum size of the cache, if lower).
+     * A larger response is passed through without being cached.
+     */
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(long maxEntrySize) {
+        if (maxEntrySize <= 0) {
+            throw new IllegalArgumentException("maxEntrySize must be positive");
+        }
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * The current size, in bytes, of the cached bodies
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * The number of responses served from the cache without contacting the server
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of responses served from the cache after the server confirmed they did not change
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * The number of responses downloaded from the server (not found in the cache, or changed on the server)
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Looks up an entry.
+     * @param key   The key of the entry
+     * @return  The entry (fresh or stale), or <code>null</code> if not cached
+     */
+    public Entry get(String key) {
+        synchronized (this) {
+            if (this.index.get(key) == null) {
+                return null;
+            }
+        }
+        final Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaFile(key), StandardCharsets.UTF_8)) {
+            meta.load(reader);
+            // keeps the order of use across restarts
+            Files.setLastModifiedTime(metaFile(key), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Cannot read cache entry " + key, e);
+            remove(key);
+            return null;
+        }
+        return new Entry(key, meta);
+    }
+
+    /**
+     * Opens a fresh entry.
+     * @param entry The entry returned by {@link #get(String)}
+     * @return  The cached response, or <code>null</code> if the entry was evicted meanwhile
+     */
+    public TransportResponse hit(Entry entry) {
+        final TransportResponse response = entry.toResponse();
+        if (response != null) {
+            this.hits.increment();
+        }
+        return response;
+    }
+
+    /**
+     * Stores a response while it is consumed. The entry is committed only if the whole body is read.
+     * @param key       The key of the entry
+     * @param response  The (decoded) response received from the server
+     * @return  The response to be handed to the caller
+     */
+    public TransportResponse store(String key, TransportResponse response) throws IOException {
+        final CacheControl cacheControl = new CacheControl(String.join(",", response.getResponseHeaders("Cache-Control")),
+                                                           response.getResponseHeader("Expires"));
+        if (response.getStatusCode() != 200 || cacheControl.noStore || response.getResponseStream() == null ||
+                "*".equals(response.getResponseHeader("Vary")) || !isJson(response.getContentType()) ||
+                contentLength(response) > this.maxEntrySize) {
+            return response;
+        }
+        this.misses.increment();
+        final Properties meta = new Properties();
+        meta.setProperty("storedAt", String.valueOf(System.currentTimeMillis()));
+        meta.setProperty("expiresAt", String.valueOf(cacheControl.expiresAt()));
+        putIfNotNull(meta, "contentType", response.getContentType());
+        putIfNotNull(meta, "cacheControl", String.join(",", response.getResponseHeaders("Cache-Control")));
+        putIfNotNull(meta, "expires", response.getResponseHeader("Expires"));
+        putIfNotNull(meta, "etag", response.getResponseHeader("ETag"));
+        putIfNotNull(meta, "lastModified", response.getResponseHeader("Last-Modified"));
+        final Path temp;
+        final OutputStream out;
+        try {
+            temp = Files.createTempFile(this.directory, key, TEMP);
+            out = Files.newOutputStream(temp);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot write to the response cache", e);
+            return response;
+        }
+        final InputStream stream = new CachingInputStream(response.getResponseStream(), out, temp, key, meta);
+        return new TransportResponse(response.getStatusCode(), response.getProtocol(), response.getHeaders(),
+                                     stream, response::dispose);
+    }
+
+    /**
+     * Marks an entry as fresh again, after the server answered 304 (Not Modified) to a revalidation request.
+     * @param entry         The stale entry
+     * @param notModified   The 304 response
+     * @return  The cached response, or <code>null</code> if the entry was evicted meanwhile
+     */
+    public TransportResponse revalidated(Entry entry, TransportResponse notModified) {
+        notModified.dispose();
+        final Properties meta = entry.meta;
+        // the directives of the original response apply, unless the server sent new ones
+        if (!notModified.getResponseHeaders("Cache-Control").isEmpty()) {
+            meta.setProperty("cacheControl", String.join(",", notModified.getResponseHeaders("Cache-Control")));
+        }
+        putIfNotNull(meta, "expires", notModified.getResponseHeader("Expires"));
+        meta.setProperty("expiresAt", String.valueOf(new CacheControl(meta.getProperty("cacheControl"),
+                                                                       meta.getProperty("expires")).expiresAt()));
+        putIfNotNull(meta, "etag", notModified.getResponseHeader("ETag"));
+        putIfNotNull(meta, "lastModified", notModified.getResponseHeader("Last-Modified"));
+        final TransportResponse response = entry.toResponse();
+        if (response != null) {
+            try {
+                writeMeta(entry.key, meta);
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Cannot update cache entry " + entry.key, e);
+            }
+            this.revalidations.increment();
+        }
+        return response;
+    }
+
+    /**
+     * Removes an entry from the cache
+     */
+    public void remove(String key) {
+        synchronized (this) {
+            final Long length = this.index.remove(key);
+            if (length != null) {
+                this.size -= length;
+            }
+        }
+        deleteQuietly(metaFile(key));
+        deleteQuietly(bodyFile(key));
+    }
+
+    /**
+     * Removes all the entries from the cache
+     */
+    public void clear() {
+        final List<String> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(this.index.keySet());
+        }
+        keys.forEach(this::remove);
+    }
+
+    private void commit(String key, Path temp, long length, Properties meta) throws IOException {
+        meta.setProperty("size", String.valueOf(length));
+        move(temp, bodyFile(key));
+        writeMeta(key, meta);
+        final List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            final Long previous = this.index.put(key, length);
+            this.size += length - (previous != null ? previous : 0);
+            final Iterator<Map.Entry<String, Long>> iterator = this.index.entrySet().iterator();
+            while (this.size > this.maxSize && iterator.hasNext()) {
+                final Map.Entry<String, Long> eldest = iterator.next();
+                iterator.remove();
+                this.size -= eldest.getValue();
+                evicted.add(eldest.getKey());
+            }
+        }
+        for (String evictedKey : evicted) {
+            deleteQuietly(metaFile(evictedKey));
+            deleteQuietly(bodyFile(evictedKey));
+        }
+    }
+
+    private void writeMeta(String key, Properties meta) throws IOException {
+        final Path temp = Files.createTempFile(this.directory, key, TEMP);
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+        move(temp, metaFile(key));
+    }
+
+    private void loadIndex() throws IOException {
+        final List<Path> metaFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                if (name.endsWith(META)) {
+                    metaFiles.add(file);
+                } else if (name.endsWith(TEMP)) {
+                    // left by an interrupted download
+                    deleteQuietly(file);
+                }
+            }
+        }
+        final Map<Path, Long> lastUse = new HashMap<>();
+        for (Path file : metaFiles) {
+            lastUse.put(file, Files.getLastModifiedTime(file).toMillis());
+        }
+        metaFiles.sort(Comparator.comparing(lastUse::get));
+        for (Path file : metaFiles) {
+            final String name = file.getFileName().toString();
+            final String key = name.substring(0, name.length() - META.length());
+            final Properties meta = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                meta.load(reader);
+                final long length = Long.parseLong(meta.getProperty("size"));
+                if (Files.size(bodyFile(key)) != length) {
+                    throw new IOException("Size mismatch");
+                }
+                this.index.put(key, length);
+                this.size += length;
+            } catch (IOException | RuntimeException e) {
+                deleteQuietly(file);
+                deleteQuietly(bodyFile(key));
+            }
+        }
+        logger.fine(String.format("Response cache %s: %d entries, %d bytes", this.directory, this.index.size(), this.size));
+    }
+
+    private Path metaFile(String key) {
+        return this.directory.resolve(key + META);
+    }
+
+    private Path bodyFile(String key) {
+        return this.directory.resolve(key + BODY);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.log(Level.FINEST, "Cannot delete " + file, e);
+        }
+    }
+
+    /**
+     * Tells if the media type is JSON (<code>application/json</code>, or any <code>+json</code> type such as
+     * <code>application/geo+json</code>). A missing content type is accepted.
+     */
+    private static boolean isJson(String contentType) {
+        if (contentType == null || contentType.trim().isEmpty()) {
+            return true;
+        }
+        String mediaType = contentType.toLowerCase();
+        final int index = mediaType.indexOf(';');
+        if (index >= 0) {
+            mediaType = mediaType.substring(0, index);
+        }
+        mediaType = mediaType.trim();
+        return mediaType.equals("application/json") || mediaType.endsWith("+json");
+    }
+
+    /**
+     * Returns the declared length of the body, or -1 if unknown
+     */
+    private static long contentLength(TransportResponse response) {
+        final String value = response.getResponseHeader("Content-Length");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void putIfNotNull(Properties properties, String name, String value) {
+        if (value != null) {
+            properties.setProperty(name, value);
+        }
+    }
+
+    /**
+     * A cached response.
+     */
+    public final class Entry {
+        private final String key;
+        private final Properties meta;
+
+        private Entry(String key, Properties meta) {
+            this.key = key;
+            this.meta = meta;
+        }
+
+        /**
+         * Tells if the response can be used without revalidation
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() < Long.parseLong(this.meta.getProperty("expiresAt", "0"));
+        }
+
+        /**
+         * The <code>ETag</code> of the cached response, if any
+         */
+        public String getETag() {
+            return this.meta.getProperty("etag");
+        }
+
+        /**
+         * The <code>Last-Modified</code> date of the cached response, if any
+         */
+        public String getLastModified() {
+            return this.meta.getProperty("lastModified");
+        }
+
+        private TransportResponse toResponse() {
+            final InputStream stream;
+            try {
+                stream = Files.newInputStream(bodyFile(this.key));
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Cannot read cache entry " + this.key, e);
+                return null;
+            }
+            final Map<String, List<String>> headers = new LinkedHashMap<>();
+            final String contentType = this.meta.getProperty("contentType");
+            if (contentType != null) {
+                headers.put("Content-Type", Collections.singletonList(contentType));
+            }
+            if (getETag() != null) {
+                headers.put("ETag", Collections.singletonList(getETag()));
+            }
+            if (getLastModified() != null) {
+                headers.put("Last-Modified", Collections.singletonList(getLastModified()));
+            }
+            headers.put("Content-Length", Collections.singletonList(this.meta.getProperty("size", "0")));
+            return new TransportResponse(200, headers, stream, null);
+        }
+    }
+
+    /**
+     * The caching directives of a response.
+     */
+    private final class CacheControl {
+        private boolean noStore;
+        private long maxAge = -1;
+        private long expires = -1;
+
+        CacheControl(String directives, String expiresHeader) {
+            if (directives != null) {
+                for (String directive : directives.split(",")) {
+                    directive = directive.trim().toLowerCase();
+                    if ("no-store".equals(directive)) {
+                        this.noStore = true;
+                    } else if ("no-cache".equals(directive)) {
+                        this.maxAge = 0;
+                    } else if (directive.startsWith("max-age=") && this.maxAge != 0) {
+                        try {
+                            this.maxAge = TimeUnit.SECONDS.toMillis(Long.parseLong(directive.substring(8).replace("\"", "")));
+                        } catch (NumberFormatException ignored) {
+                            this.maxAge = 0;
+                        }
+                    }
+                }
+            }
+            if (expiresHeader != null) {
+                try {
+                    this.expires = ZonedDateTime.parse(expiresHeader.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                                                .toInstant().toEpochMilli();
+                } catch (DateTimeParseException e) {
+                    // an invalid date means "already expired"
+                    this.expires = 0;
+                }
+            }
+        }
+
+        long expiresAt() {
+            final long now = System.currentTimeMillis();
+            if (this.maxAge >= 0) {
+                return now + this.maxAge;
+            }
+            if (this.expires >= 0) {
+                return this.expires;
+            }
+            return now + defaultTtl;
+        }
+    }
+
+    /**
+     * Copies the body to a temporary file while it is read, and commits the entry when the body was read entirely.
+     * The copy is abandoned as soon as the body exceeds the maximum size of an entry.
+     */
+    private final class CachingInputStream extends FilterInputStream {
+        private final OutputStream out;
+        private final Path temp;
+        private final String key;
+        private final Properties meta;
+        private long length;
+        private boolean failed;
+        private boolean finished;
+
+        CachingInputStream(InputStream in, OutputStream out, Path temp, String key, Properties meta) {
+            super(in);
+            this.out = out;
+            this.temp = temp;
+            this.key = key;
+            this.meta = meta;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b < 0) {
+                finish();
+            } else {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int count = super.read(b, off, len);
+            if (count < 0) {
+                finish();
+            } else {
+                write(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes would be missing from the cached copy
+            this.failed = true;
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // parsers stop at the end of the JSON document, usually before the end of the stream
+                drainRemainder();
+                // a body that was not read entirely is not cached
+                this.failed = true;
+                finish();
+            } finally {
+                super.close();
+            }
+        }
+
+        /**
+         * Reads what is left of the body (for example, a trailing new line), so that the entry is committed.
+         * A body with more than a few bytes left was abandoned by the caller, and is not read further.
+         */
+        private void drainRemainder() {
+            if (this.finished || this.failed) {
+                return;
+            }
+            final byte[] buffer = new byte[1024];
+            long drained = 0;
+            try {
+                // the end of the body is detected by a read returning -1, which finishes the entry
+                while (!this.finished && drained < DRAIN_LIMIT) {
+                    final int count = read(buffer, 0, buffer.length);
+                    if (count == 0) {
+                        break;
+                    }
+                    drained += Math.max(count, 0);
+                }
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Cannot read the end of the response " + this.key, e);
+            }
+        }
+
+        /**
+         * Commits the entry when the end of the body is reached, since callers do not always close the stream
+         */
+        private void finish() {
+            if (this.finished) {
+                return;
+            }
+            this.finished = true;
+            try {
+                this.out.close();
+                if (!this.failed) {
+                    commit(this.key, this.temp, this.length, this.meta);
+                } else {
+                    deleteQuietly(this.temp);
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Cannot write to the response cache", e);
+                deleteQuietly(this.temp);
+            }
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (!this.failed && len > 0) {
+                if (this.length + len > maxEntrySize) {
+                    logger.fine(String.format("Response %s exceeds %d bytes, it is not cached", this.key, maxEntrySize));
+                    abandon();
+                    return;
+                }
+                try {
+                    this.out.write(b, off, len);
+                    this.length += len;
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Cannot write to the response cache", e);
+                    abandon();
+                }
+            }
+        }
+
+        /**
+         * Stops copying the body, and releases the temporary file right away
+         */
+        private void abandon() {
+            this.failed = true;
+            finish();
+        }
+    }
+}
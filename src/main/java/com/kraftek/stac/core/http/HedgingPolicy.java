@@ -0,0 +1,147 @@
+package com.kraftek.stac.core.http;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides when a second (hedged) attempt of an idempotent request is sent, in case the first one is slow.
+ * The hedge is sent when the first attempt did not answer within a percentile of the recent latencies of the host;
+ * the first attempt that answers is used and the other one is cancelled.
+ * Hedges are subject to a {@link RetryBudget}, so that they are only a small fraction of the requests.
+ *
+ * @author Cosmin Cara
+ */
+public class HedgingPolicy {
+    private static final ExecutorService sharedExecutor = Executors.newCachedThreadPool(new HedgeThreadFactory());
+    private final Map<String, LatencyTracker> trackers = new ConcurrentHashMap<>();
+    private double percentile = 0.95;
+    private long minDelay = 50;
+    private int minSamples = 20;
+    private int sampleSize = 256;
+    private RetryBudget budget = new RetryBudget(0.1, 0, 10);
+    private Executor executor = sharedExecutor;
+
+    public HedgingPolicy() {
+        super();
+    }
+
+    /**
+     * The percentile of the recent latencies after which the hedge is sent (0.95 by default)
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1]");
+        }
+        this.percentile = percentile;
+    }
+
+    /**
+     * The minimum delay (in milliseconds) before sending a hedge
+     */
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    public void setMinDelay(long minDelay) {
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * The number of latency samples needed for a host before hedging the requests to it
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * The number of recent latency samples kept for each host
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * The budget limiting the hedges (by default, 10% of the requests)
+     */
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(RetryBudget budget) {
+        if (budget == null) {
+            throw new IllegalArgumentException("budget cannot be null");
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * The executor on which the hedges are sent
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the delay (in milliseconds) after which a request to the given URL should be hedged,
+     * or -1 if there are not yet enough latency samples for its host
+     * @param url   The URL of the request
+     */
+    public long getHedgeDelay(URL url) {
+        final LatencyTracker tracker = tracker(url);
+        if (tracker.getCount() < this.minSamples) {
+            return -1;
+        }
+        return Math.max(this.minDelay, tracker.percentile(this.percentile));
+    }
+
+    /**
+     * Records the latency of a successful attempt
+     * @param url       The URL of the request
+     * @param millis    The time until the response was received, in milliseconds
+     */
+    public void record(URL url, long millis) {
+        tracker(url).record(millis);
+    }
+
+    private LatencyTracker tracker(URL url) {
+        // an explicit default port and no port are the same endpoint
+        final int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return this.trackers.computeIfAbsent(url.getHost() + ":" + port, k -> new LatencyTracker(this.sampleSize));
+    }
+
+    private static class HedgeThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "stac-hedge-" + this.counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
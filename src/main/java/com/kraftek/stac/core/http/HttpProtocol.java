@@ -0,0 +1,18 @@
+package com.kraftek.stac.core.http;
+
+/**
+ * The HTTP protocol versions that a transport can be asked to use.
+ *
+ * @author Cosmin Cara
+ */
+public enum HttpProtocol {
+    /**
+     * One request at a time per connection
+     */
+    HTTP_1_1,
+    /**
+     * Multiplexed requests over a few connections, negotiated through ALPN.
+     * If the server does not support it (or the connection is not secure), HTTP/1.1 is used.
+     */
+    HTTP_2
+}
@@ -0,0 +1,57 @@
+package com.kraftek.stac.core.http;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Signals that the server answered a request with an error status code.
+ *
+ * @author Cosmin Cara
+ */
+public class HttpResponseException extends IOException {
+    private final int statusCode;
+    private final URL url;
+    private final Map<String, List<String>> headers;
+
+    public HttpResponseException(int statusCode, URL url) {
+        this(statusCode, url, null);
+    }
+
+    public HttpResponseException(int statusCode, URL url, Map<String, List<String>> headers) {
+        super("Server returned HTTP response code: " + statusCode + " for URL: " + url);
+        this.statusCode = statusCode;
+        this.url = url;
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            this.headers.putAll(headers);
+        }
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns the first value of a header of the error response
+     * @param name  The header name
+     */
+    public String getHeader(String name) {
+        final List<String> values = this.headers.get(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    /**
+     * Returns the headers of the error response
+     */
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(this.headers);
+    }
+}
@@ -0,0 +1,19 @@
+package com.kraftek.stac.core.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Low-level transport used by {@link com.kraftek.stac.core.HttpClient} to send requests over the wire.
+ * Implementations are expected to be thread-safe and to reuse connections between requests.
+ *
+ * @author Cosmin Cara
+ */
+public interface HttpTransport extends Closeable {
+    /**
+     * Sends the request and returns the response. The caller is responsible for disposing the response
+     * (which releases the underlying connection).
+     * @param request   The request to send
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+}
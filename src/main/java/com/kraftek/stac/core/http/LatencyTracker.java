@@ -0,0 +1,66 @@
+package com.kraftek.stac.core.http;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples and computes percentiles over them.
+ *
+ * @author Cosmin Cara
+ */
+public class LatencyTracker {
+    private static final int RECOMPUTE_INTERVAL = 16;
+    private final long[] samples;
+    private int count;
+    private int next;
+    private int sinceSorted;
+    private long[] sorted;
+
+    /**
+     * Creates a tracker.
+     * @param capacity  The number of recent samples kept
+     */
+    public LatencyTracker(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Records a latency value
+     * @param millis    The latency, in milliseconds
+     */
+    public synchronized void record(long millis) {
+        this.samples[this.next] = millis;
+        this.next = (this.next + 1) % this.samples.length;
+        if (this.count < this.samples.length) {
+            this.count++;
+        }
+        this.sinceSorted++;
+    }
+
+    /**
+     * The number of samples currently kept
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the given percentile of the recent latencies, or -1 if there is no sample
+     * @param percentile    The percentile, between 0 and 1 (for example, 0.95)
+     */
+    public synchronized long percentile(double percentile) {
+        if (this.count == 0) {
+            return -1;
+        }
+        // sorting is amortized over several samples
+        if (this.sorted == null || this.sinceSorted >= RECOMPUTE_INTERVAL || this.sorted.length != this.count) {
+            this.sorted = Arrays.copyOf(this.samples, this.count);
+            Arrays.sort(this.sorted);
+            this.sinceSorted = 0;
+        }
+        final int index = (int) Math.ceil(percentile * this.sorted.length) - 1;
+        return this.sorted[Math.max(0, Math.min(this.sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,222 @@
+package com.kraftek.stac.core.http;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transport backed by OkHttp, using a connection pool with keep-alive, idle connection eviction
+ * and a cap on the number of simultaneous connections per host.
+ * TLS sessions are resumed because all the connections share the same SSL context.
+ * In HTTP/2 mode, the concurrent requests to a host are multiplexed over a few connections, falling back to
+ * HTTP/1.1 when the server cannot negotiate h2.
+ *
+ * @author Cosmin Cara
+ */
+public class OkHttpTransport implements HttpTransport {
+    private static final Map<HttpProtocol, OkHttpTransport> shared = new EnumMap<>(HttpProtocol.class);
+    private final OkHttpClient client;
+    private final TransportOptions options;
+    private final Map<String, HostPermits> hostPermits;
+    private final Map<Long, OkHttpClient> derivedClients;
+
+    /**
+     * Creates a transport with the default options
+     */
+    public OkHttpTransport() {
+        this(new TransportOptions());
+    }
+
+    /**
+     * Creates a transport with the given options
+     * @param options   The connection pool options
+     */
+    public OkHttpTransport(TransportOptions options) {
+        this.options = options != null ? options : new TransportOptions();
+        // no timeout unless requested, as with URLConnection (OkHttp would otherwise apply 10s)
+        this.client = new OkHttpClient.Builder()
+                .connectTimeout(0, TimeUnit.MILLISECONDS)
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .writeTimeout(0, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(this.options.getMaxIdleConnections(),
+                                                   this.options.getKeepAliveSeconds(), TimeUnit.SECONDS))
+                .sslSocketFactory(TrustAllSSLContext.socketFactory(), TrustAllSSLContext.trustManager())
+                .hostnameVerifier(TrustAllSSLContext.hostnameVerifier())
+                .protocols(this.options.getProtocol() == HttpProtocol.HTTP_2
+                           ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                           : Collections.singletonList(Protocol.HTTP_1_1))
+                .build();
+        this.hostPermits = new ConcurrentHashMap<>();
+        this.derivedClients = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the HTTP/1.1 transport instance shared by all the clients in this JVM
+     */
+    public static OkHttpTransport shared() {
+        return shared(HttpProtocol.HTTP_1_1);
+    }
+
+    /**
+     * Returns the transport instance for the given protocol, shared by all the clients in this JVM
+     * @param protocol  The preferred protocol
+     */
+    public static OkHttpTransport shared(HttpProtocol protocol) {
+        synchronized (shared) {
+            return shared.computeIfAbsent(protocol, p -> {
+                final TransportOptions options = new TransportOptions();
+                options.setProtocol(p);
+                return new OkHttpTransport(options);
+            });
+        }
+    }
+
+    public TransportOptions getOptions() {
+        return options;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        final OkHttpClient callClient = clientFor(request.getConnectTimeout(), request.getReadTimeout());
+        final Request.Builder builder = new Request.Builder().url(request.getUrl());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.addHeader(header.getKey(), header.getValue());
+        }
+        switch (request.getMethod()) {
+            case POST:
+                builder.post(new StreamingRequestBody(request));
+                break;
+            case GET:
+            default:
+                builder.get();
+                break;
+        }
+        final HostPermits host = permitsFor(request.getUrl());
+        final Semaphore permit = host.current();
+        // a response that is never disposed keeps its permit, so the wait is bounded
+        final long maxWait = request.getConnectTimeout() > 0
+                             ? request.getConnectTimeout() : TimeUnit.SECONDS.toMillis(this.options.getMaxWaitSeconds());
+        try {
+            if (!permit.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                throw new SocketTimeoutException(String.format("No connection to %s available after %d ms",
+                                                               request.getUrl().getHost(), maxWait));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + request.getUrl().getHost());
+        }
+        final Response response;
+        try {
+            final Call call = callClient.newCall(builder.build());
+            request.onCancel(call::cancel);
+            response = call.execute();
+        } catch (IOException | RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+        if (response.protocol() == Protocol.HTTP_2) {
+            host.multiplexed = true;
+        }
+        final AtomicBoolean released = new AtomicBoolean(false);
+        final ResponseBody body = response.body();
+        return new TransportResponse(response.code(), response.protocol().toString(), response.headers().toMultimap(),
+                                     body != null ? body.byteStream() : null,
+                                     () -> {
+                                         if (released.compareAndSet(false, true)) {
+                                             response.close();
+                                             permit.release();
+                                         }
+                                     });
+    }
+
+    @Override
+    public void close() {
+        this.client.connectionPool().evictAll();
+        this.client.dispatcher().executorService().shutdown();
+    }
+
+    /**
+     * Returns the client with the given timeouts. The clients are derived once for each pair of timeouts, and share
+     * the connection pool of the base client.
+     * @param connectTimeout    The connection timeout, in milliseconds (0 for the default)
+     * @param readTimeout       The read timeout, in milliseconds (0 for the default)
+     */
+    private OkHttpClient clientFor(int connectTimeout, int readTimeout) {
+        if (connectTimeout <= 0 && readTimeout <= 0) {
+            return this.client;
+        }
+        final long key = ((long) Math.max(connectTimeout, 0) << 32) | Math.max(readTimeout, 0);
+        return this.derivedClients.computeIfAbsent(key, k -> {
+            final OkHttpClient.Builder builder = this.client.newBuilder();
+            if (connectTimeout > 0) {
+                builder.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS);
+            }
+            if (readTimeout > 0) {
+                builder.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
+            }
+            return builder.build();
+        });
+    }
+
+    private HostPermits permitsFor(URL url) {
+        final String key = url.getHost() + ":" + (url.getPort() > 0 ? url.getPort() : url.getDefaultPort());
+        return this.hostPermits.computeIfAbsent(key, k -> new HostPermits());
+    }
+
+    /**
+     * Limits the simultaneous requests to a host: by connections, until the host is known to multiplex
+     * the requests over HTTP/2, and by streams afterwards.
+     */
+    private class HostPermits {
+        private final Semaphore connections = new Semaphore(options.getMaxConnectionsPerHost(), true);
+        private final Semaphore streams = new Semaphore(options.getMaxConcurrentStreamsPerHost(), true);
+        private volatile boolean multiplexed;
+
+        Semaphore current() {
+            return this.multiplexed ? this.streams : this.connections;
+        }
+    }
+
+    /**
+     * Request body that is written directly to the connection sink.
+     */
+    private static class StreamingRequestBody extends RequestBody {
+        private final TransportRequest request;
+
+        StreamingRequestBody(TransportRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return request.getContentType() != null ? MediaType.parse(request.getContentType()) : null;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            if (request.getBody() != null) {
+                request.getBody().writeTo(sink.outputStream());
+            }
+        }
+    }
+}
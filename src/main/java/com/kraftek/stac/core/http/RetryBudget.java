@@ -0,0 +1,68 @@
+package com.kraftek.stac.core.http;
+
+/**
+ * Limits the number of retries to a fraction of the number of requests, so that retries cannot amplify
+ * the load on a server that is already failing.
+ * Every request deposits <code>ratio</code> tokens (up to a maximum balance) and every retry withdraws one.
+ * A small number of retries per second is always allowed, so that clients with low traffic can still retry.
+ *
+ * @author Cosmin Cara
+ */
+public class RetryBudget {
+    private static final RetryBudget shared = new RetryBudget(0.2, 10, 100);
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final double maxBalance;
+    private double balance;
+    private long currentSecond;
+    private int retriesInCurrentSecond;
+
+    /**
+     * Creates a retry budget.
+     * @param ratio                 The number of retries allowed for each request (for example, 0.2 means 20%)
+     * @param minRetriesPerSecond   The number of retries per second allowed regardless of the ratio
+     * @param maxBalance            The maximum number of retries that can be accumulated
+     */
+    public RetryBudget(double ratio, int minRetriesPerSecond, int maxBalance) {
+        if (ratio < 0 || minRetriesPerSecond < 0 || maxBalance < 0) {
+            throw new IllegalArgumentException("Retry budget values cannot be negative");
+        }
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.maxBalance = maxBalance;
+    }
+
+    /**
+     * Returns the budget shared by all the clients in this JVM
+     */
+    public static RetryBudget shared() {
+        return shared;
+    }
+
+    /**
+     * Records a new (original) request
+     */
+    public synchronized void onRequest() {
+        this.balance = Math.min(this.maxBalance, this.balance + this.ratio);
+    }
+
+    /**
+     * Tries to reserve a retry. Returns <code>false</code> if the budget is exhausted.
+     */
+    public synchronized boolean tryRetry() {
+        final long second = System.currentTimeMillis() / 1000;
+        if (second != this.currentSecond) {
+            this.currentSecond = second;
+            this.retriesInCurrentSecond = 0;
+        }
+        if (this.retriesInCurrentSecond < this.minRetriesPerSecond) {
+            this.retriesInCurrentSecond++;
+            return true;
+        }
+        if (this.balance >= 1) {
+            this.balance -= 1;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,162 @@
+package com.kraftek.stac.core.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides if (and when) a failed idempotent request is sent again.
+ * The delay between attempts grows exponentially with decorrelated jitter, unless the server states
+ * the delay through the <code>Retry-After</code> header. All retries are subject to a {@link RetryBudget}.
+ *
+ * @author Cosmin Cara
+ */
+public class RetryPolicy {
+    private int maxAttempts = 4;
+    private long baseDelay = 200;
+    private long maxDelay = 20_000;
+    private long maxRetryAfter = 120_000;
+    private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(408, 429, 500, 502, 503, 504));
+    private RetryBudget budget = RetryBudget.shared();
+
+    public RetryPolicy() {
+        super();
+    }
+
+    /**
+     * The maximum number of attempts (including the first one)
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * The minimum delay (in milliseconds) between two attempts
+     */
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    /**
+     * The maximum delay (in milliseconds) between two attempts, when the server doesn't state it
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * The maximum delay (in milliseconds) accepted from a <code>Retry-After</code> header.
+     * If the server asks for a longer delay, the request is not retried.
+     */
+    public long getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    public void setMaxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+
+    /**
+     * The HTTP status codes considered transient
+     */
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    public void setRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        this.retryableStatusCodes = retryableStatusCodes;
+    }
+
+    /**
+     * The budget that limits the retries
+     */
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(RetryBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Tells if the error is transient (i.e., the same request may succeed later).
+     * Only the timeouts, the refused, reset or prematurely closed connections, the protocol errors (such as a reset
+     * HTTP/2 stream) and the retryable status codes are considered transient. Any other error (a corrupted or
+     * unsupported content, a cancelled call, an unknown host, a certificate problem) is not going away by retrying.
+     * @param error The error of the last attempt
+     */
+    public boolean isRetryable(IOException error) {
+        if (error instanceof HttpResponseException) {
+            return this.retryableStatusCodes.contains(((HttpResponseException) error).getStatusCode());
+        }
+        return error instanceof SocketTimeoutException || error instanceof SocketException ||
+                error instanceof EOFException || error instanceof ProtocolException ||
+                // OkHttp reports a reset HTTP/2 stream with an internal class
+                "StreamResetException".equals(error.getClass().getSimpleName());
+    }
+
+    /**
+     * Computes the delay (in milliseconds) before the next attempt, or -1 if the request should not be retried.
+     * @param previousDelay The delay before the previous attempt (0 for the first retry)
+     * @param error         The error of the last attempt
+     */
+    public long nextDelay(long previousDelay, IOException error) {
+        if (error instanceof HttpResponseException) {
+            final long retryAfter = parseRetryAfter(((HttpResponseException) error).getHeader("Retry-After"));
+            if (retryAfter >= 0) {
+                return retryAfter <= this.maxRetryAfter ? retryAfter : -1;
+            }
+        }
+        // decorrelated jitter: sleep = min(cap, random_between(base, previous * 3)), with previous = base at first
+        final long upper = Math.max(this.baseDelay, previousDelay) * 3;
+        final long delay = upper > this.baseDelay
+                ? ThreadLocalRandom.current().nextLong(this.baseDelay, upper + 1)
+                : this.baseDelay;
+        return Math.min(this.maxDelay, delay);
+    }
+
+    /**
+     * Parses the value of a Retry-After header (either a number of seconds or an HTTP date) into milliseconds.
+     * Returns -1 if the value is missing or invalid.
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        final String trimmed = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(trimmed) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                final ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ex) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.kraftek.stac.core.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bytes received over the wire and the bytes handed to the consumers after decompression.
+ *
+ * @author Cosmin Cara
+ */
+public class TransferStatistics {
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder contentBytes = new LongAdder();
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder compressedResponses = new LongAdder();
+
+    /**
+     * The number of (possibly compressed) bytes read from the network
+     */
+    public long getWireBytes() {
+        return wireBytes.sum();
+    }
+
+    /**
+     * The number of (decompressed) bytes read by the consumers of the responses
+     */
+    public long getContentBytes() {
+        return contentBytes.sum();
+    }
+
+    /**
+     * The number of responses received
+     */
+    public long getResponses() {
+        return responses.sum();
+    }
+
+    /**
+     * The number of responses received with a content encoding
+     */
+    public long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+
+    public void reset() {
+        wireBytes.reset();
+        contentBytes.reset();
+        responses.reset();
+        compressedResponses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "responses: " + getResponses() + " (" + getCompressedResponses() + " compressed), " +
+                "wire bytes: " + getWireBytes() + ", content bytes: " + getContentBytes();
+    }
+
+    void countResponse(boolean compressed) {
+        responses.increment();
+        if (compressed) {
+            compressedResponses.increment();
+        }
+    }
+
+    InputStream countWire(InputStream stream) {
+        return new CountingInputStream(stream, wireBytes);
+    }
+
+    InputStream countContent(InputStream stream) {
+        return new CountingInputStream(stream, contentBytes);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final LongAdder counter;
+
+        CountingInputStream(InputStream in, LongAdder counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = super.read();
+            if (value != -1) {
+                counter.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int count = super.read(b, off, len);
+            if (count > 0) {
+                counter.add(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long count = super.skip(n);
+            if (count > 0) {
+                counter.add(count);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.kraftek.stac.core.http;
+
+/**
+ * Connection pool settings of a {@link HttpTransport}.
+ *
+ * @author Cosmin Cara
+ */
+public class TransportOptions {
+    private int maxConnectionsPerHost = 16;
+    private int maxIdleConnections = 32;
+    private long keepAliveSeconds = 300;
+    private HttpProtocol protocol = HttpProtocol.HTTP_1_1;
+    private int maxConcurrentStreamsPerHost = 256;
+    private long maxWaitSeconds = 60;
+
+    public TransportOptions() {
+        super();
+    }
+
+    /**
+     * The maximum number of simultaneously open connections to the same host
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * The maximum number of idle connections kept in the pool
+     */
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("maxIdleConnections cannot be negative");
+        }
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * The time (in seconds) after which an idle connection is evicted from the pool
+     */
+    public long getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(long keepAliveSeconds) {
+        if (keepAliveSeconds <= 0) {
+            throw new IllegalArgumentException("keepAliveSeconds must be positive");
+        }
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    /**
+     * The preferred protocol version
+     */
+    public HttpProtocol getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(HttpProtocol protocol) {
+        this.protocol = protocol != null ? protocol : HttpProtocol.HTTP_1_1;
+    }
+
+    /**
+     * The maximum number of simultaneous requests to the same host, once the host is known to multiplex
+     * the requests over HTTP/2. Until then (or if the host falls back to HTTP/1.1), the
+     * <code>maxConnectionsPerHost</code> limit applies.
+     */
+    public int getMaxConcurrentStreamsPerHost() {
+        return maxConcurrentStreamsPerHost;
+    }
+
+    public void setMaxConcurrentStreamsPerHost(int maxConcurrentStreamsPerHost) {
+        if (maxConcurrentStreamsPerHost <= 0) {
+            throw new IllegalArgumentException("maxConcurrentStreamsPerHost must be positive");
+        }
+        this.maxConcurrentStreamsPerHost = maxConcurrentStreamsPerHost;
+    }
+
+    /**
+     * The maximum time (in seconds) a request waits for a free connection (or stream) to its host, when the
+     * request has no connection timeout. Otherwise, the connection timeout of the request applies.
+     */
+    public long getMaxWaitSeconds() {
+        return maxWaitSeconds;
+    }
+
+    public void setMaxWaitSeconds(long maxWaitSeconds) {
+        if (maxWaitSeconds <= 0) {
+            throw new IllegalArgumentException("maxWaitSeconds must be positive");
+        }
+        this.maxWaitSeconds = maxWaitSeconds;
+    }
+}
@@ -0,0 +1,161 @@
+package com.kraftek.stac.core.http;
+
+import com.kraftek.stac.core.model.HttpMethod;
+
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Describes a request to be sent by a {@link HttpTransport}.
+ *
+ * @author Cosmin Cara
+ */
+public class TransportRequest {
+    private final HttpMethod method;
+    private final URL url;
+    private final Map<String, String> headers;
+    private BodyWriter body;
+    private boolean repeatable;
+    private Boolean idempotent;
+    private String contentType;
+    private int connectTimeout;
+    private int readTimeout;
+    private final AtomicBoolean cancelled;
+    private volatile Runnable cancelAction;
+
+    public TransportRequest(HttpMethod method, URL url) {
+        this.method = method;
+        this.url = url;
+        this.headers = new LinkedHashMap<>();
+        this.repeatable = true;
+        this.cancelled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Creates a copy of this request (not cancelled), that can be sent independently of it
+     */
+    public TransportRequest copy() {
+        final TransportRequest copy = new TransportRequest(this.method, this.url);
+        copy.headers.putAll(this.headers);
+        copy.body = this.body;
+        copy.repeatable = this.repeatable;
+        copy.idempotent = this.idempotent;
+        copy.contentType = this.contentType;
+        copy.connectTimeout = this.connectTimeout;
+        copy.readTimeout = this.readTimeout;
+        return copy;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * The request headers (in insertion order)
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeader(String name, String value) {
+        this.headers.put(name, value);
+    }
+
+    /**
+     * The writer of the request body (only for POST requests)
+     */
+    public BodyWriter getBody() {
+        return body;
+    }
+
+    public void setBody(BodyWriter body) {
+        this.body = body;
+    }
+
+    /**
+     * Tells if the request can be sent again (i.e., its body, if any, can be written more than once)
+     */
+    public boolean isRepeatable() {
+        return repeatable;
+    }
+
+    public void setRepeatable(boolean repeatable) {
+        this.repeatable = repeatable;
+    }
+
+    /**
+     * Tells if sending the request several times has the same effect as sending it once.
+     * By default, only GET requests are idempotent.
+     */
+    public boolean isIdempotent() {
+        return idempotent != null ? idempotent : method == HttpMethod.GET;
+    }
+
+    public void setIdempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * The connect timeout, in milliseconds. A value of 0 means the transport default.
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * The read timeout, in milliseconds. A value of 0 means the transport default.
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Aborts the request, if in progress. The thread sending it gets an <code>IOException</code>.
+     */
+    public void cancel() {
+        if (this.cancelled.compareAndSet(false, true)) {
+            final Runnable action = this.cancelAction;
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Registers the action that aborts the request while it is sent (to be called by transports).
+     * If the request was already cancelled, the action is run immediately.
+     * @param action    The action aborting the request
+     */
+    public void onCancel(Runnable action) {
+        this.cancelAction = action;
+        if (this.cancelled.get()) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.kraftek.stac.core.http;
+
+import org.geotools.http.HTTPResponse;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Response returned by a {@link HttpTransport}.
+ * Disposing the response (or closing its stream) releases the connection back to the transport.
+ *
+ * @author Cosmin Cara
+ */
+public class TransportResponse implements HTTPResponse {
+    private static final Logger logger = Logger.getLogger(TransportResponse.class.getName());
+    private final int statusCode;
+    private final String protocol;
+    private final Map<String, List<String>> headers;
+    private final InputStream rawStream;
+    private final InputStream stream;
+    private final Closeable resource;
+    private final AtomicBoolean disposed;
+
+    /**
+     * Creates a new response.
+     * @param statusCode    The HTTP status code
+     * @param headers       The response headers (names are matched case-insensitive)
+     * @param stream        The response body
+     * @param resource      The resource to be released when the response is disposed
+     */
+    public TransportResponse(int statusCode, Map<String, List<String>> headers, InputStream stream, Closeable resource) {
+        this(statusCode, null, headers, stream, resource);
+    }
+
+    /**
+     * Creates a new response.
+     * @param statusCode    The HTTP status code
+     * @param protocol      The negotiated protocol (for example, <code>h2</code> or <code>http/1.1</code>)
+     * @param headers       The response headers (names are matched case-insensitive)
+     * @param stream        The response body
+     * @param resource      The resource to be released when the response is disposed
+     */
+    public TransportResponse(int statusCode, String protocol, Map<String, List<String>> headers, InputStream stream, Closeable resource) {
+        this.statusCode = statusCode;
+        this.protocol = protocol;
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            headers.forEach((name, values) -> {
+                // HttpURLConnection reports the status line with a null key
+                if (name != null) {
+                    this.headers.put(name, values);
+                }
+            });
+        }
+        this.rawStream = stream;
+        // Callers usually only close the stream, so closing it must also release the connection
+        this.stream = stream != null ? new FilterInputStream(stream) {
+            @Override
+            public void close() {
+                dispose();
+            }
+        } : null;
+        this.resource = resource;
+        this.disposed = new AtomicBoolean(false);
+    }
+
+    /**
+     * The HTTP status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * The protocol negotiated with the server, if known by the transport
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Returns all the values of a response header
+     * @param headerName    The header name
+     */
+    public List<String> getResponseHeaders(String headerName) {
+        final List<String> values = this.headers.get(headerName);
+        return values != null ? values : Collections.emptyList();
+    }
+
+    /**
+     * Returns all the response headers
+     */
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(this.headers);
+    }
+
+    @Override
+    public String getResponseHeader(String headerName) {
+        final List<String> values = this.headers.get(headerName);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    @Override
+    public String getContentType() {
+        return getResponseHeader("Content-Type");
+    }
+
+    @Override
+    public String getResponseCharset() {
+        final String contentType = getContentType();
+        if (contentType != null) {
+            for (String token : contentType.split(";")) {
+                token = token.trim();
+                if (token.toLowerCase().startsWith("charset=")) {
+                    return token.substring(8).replace("\"", "");
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public InputStream getResponseStream() throws IOException {
+        return this.stream;
+    }
+
+    @Override
+    public void dispose() {
+        if (this.disposed.compareAndSet(false, true)) {
+            try {
+                if (this.rawStream != null) {
+                    this.rawStream.close();
+                }
+                if (this.resource != null) {
+                    this.resource.close();
+                }
+            } catch (IOException e) {
+                logger.log(Level.FINEST, "Error disposing response", e);
+            }
+        }
+    }
+}
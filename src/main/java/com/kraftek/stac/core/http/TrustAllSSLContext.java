@@ -0,0 +1,69 @@
+package com.kraftek.stac.core.http;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+
+/**
+ * Holds the single all-trusting SSL context used for services with self-signed certificates.
+ * Sharing the same context (and thus the same socket factory) allows the TLS sessions to be resumed
+ * across connections instead of performing a full handshake every time.
+ *
+ * @author Cosmin Cara
+ */
+public final class TrustAllSSLContext {
+    private static final X509TrustManager trustManager = new X509TrustManager() {
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+
+        public void checkClientTrusted(X509Certificate[] certs, String authType) {  }
+
+        public void checkServerTrusted(X509Certificate[] certs, String authType) {  }
+    };
+    private static final HostnameVerifier hostnameVerifier = (hostname, session) -> true;
+    private static volatile SSLSocketFactory socketFactory;
+
+    private TrustAllSSLContext() { }
+
+    /**
+     * Returns the trust manager that accepts any certificate
+     */
+    public static X509TrustManager trustManager() {
+        return trustManager;
+    }
+
+    /**
+     * Returns the host verifier that accepts any host
+     */
+    public static HostnameVerifier hostnameVerifier() {
+        return hostnameVerifier;
+    }
+
+    /**
+     * Returns the (lazily created) socket factory of the shared SSL context
+     * @throws IllegalStateException if the JVM does not provide a TLS implementation
+     */
+    public static SSLSocketFactory socketFactory() {
+        if (socketFactory == null) {
+            synchronized (TrustAllSSLContext.class) {
+                if (socketFactory == null) {
+                    try {
+                        final SSLContext context = SSLContext.getInstance("TLS");
+                        context.init(null, new TrustManager[] { trustManager }, new SecureRandom());
+                        socketFactory = context.getSocketFactory();
+                    } catch (NoSuchAlgorithmException | KeyManagementException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+        return socketFactory;
+    }
+}
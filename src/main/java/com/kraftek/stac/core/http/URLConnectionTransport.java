@@ -0,0 +1,71 @@
+package com.kraftek.stac.core.http;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.util.Map;
+
+/**
+ * Transport based on the JDK {@link URLConnection}.
+ * Connections are kept alive by the JDK as long as the response streams are fully consumed and closed.
+ *
+ * @author Cosmin Cara
+ */
+public class URLConnectionTransport implements HttpTransport {
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        final URLConnection connection = request.getUrl().openConnection();
+        if (!(connection instanceof HttpURLConnection)) {
+            // Non-HTTP protocols (such as file:) do not have status codes
+            connection.connect();
+            return new TransportResponse(200, connection.getHeaderFields(), connection.getInputStream(), null);
+        }
+        final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        request.onCancel(httpConnection::disconnect);
+        httpConnection.setRequestMethod(request.getMethod().name());
+        if (request.getConnectTimeout() > 0) {
+            connection.setConnectTimeout(request.getConnectTimeout());
+        }
+        if (request.getReadTimeout() > 0) {
+            connection.setReadTimeout(request.getReadTimeout());
+        }
+        if (connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(TrustAllSSLContext.socketFactory());
+            ((HttpsURLConnection) connection).setHostnameVerifier(TrustAllSSLContext.hostnameVerifier());
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            connection.addRequestProperty(header.getKey(), header.getValue());
+        }
+        if (request.getBody() != null) {
+            connection.setDoOutput(true);
+            if (request.getContentType() != null) {
+                connection.setRequestProperty("Content-Type", request.getContentType());
+            }
+            httpConnection.setChunkedStreamingMode(0);
+            connection.connect();
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                request.getBody().writeTo(outputStream);
+                outputStream.flush();
+            }
+        } else {
+            connection.connect();
+        }
+        if (request.isCancelled()) {
+            // disconnect() has no effect on a connection that was not yet established
+            httpConnection.disconnect();
+            throw new IOException("Request cancelled: " + request.getUrl());
+        }
+        final int statusCode = httpConnection.getResponseCode();
+        final InputStream stream = statusCode >= 400 ? httpConnection.getErrorStream() : httpConnection.getInputStream();
+        return new TransportResponse(statusCode, connection.getHeaderFields(), stream, null);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release, the JDK manages the keep-alive cache
+    }
+}
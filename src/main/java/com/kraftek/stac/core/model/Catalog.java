@@ -11,6 +11,7 @@ public class Catalog {
     protected String title;
     protected String description;
     protected List<Link> links;
+    protected List<String> conformsTo;
 
     public String getStac_version() {
         return stac_version;
@@ -73,4 +74,15 @@ public class Catalog {
     public void setLinks(List<Link> links) {
         this.links = links;
     }
+
+    /**
+     * The conformance classes implemented by the service (only for the landing page of a STAC API)
+     */
+    public List<String> getConformsTo() {
+        return conformsTo;
+    }
+
+    public void setConformsTo(List<String> conformsTo) {
+        this.conformsTo = conformsTo;
+    }
 }
@@ -1,5 +1,7 @@
 package com.kraftek.stac.core.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public abstract class Geometry<T> {
@@ -109,7 +111,13 @@ public abstract class Geometry<T> {
         }
     }
 
+    /**
+     * Polygon whose coordinates are stored packed (see {@link PackedCoordinates}).
+     * The nested arrays returned by {@link #getCoordinates()} are built on each call.
+     */
     public static class Polygon extends Geometry<double[][][]>{
+        private PackedCoordinates packedCoordinates;
+
         public Polygon() {
             super(GeometryType.Polygon);
         }
@@ -118,9 +126,35 @@ public abstract class Geometry<T> {
         public int getRank() {
             return 3;
         }
+
+        @Override
+        public double[][][] getCoordinates() {
+            return packedCoordinates != null ? packedCoordinates.toPolygon() : null;
+        }
+
+        @Override
+        public void setCoordinates(double[][][] coordinates) {
+            this.packedCoordinates = coordinates != null ? PackedCoordinates.ofPolygon(coordinates) : null;
+        }
+
+        @JsonIgnore
+        public PackedCoordinates getPackedCoordinates() {
+            return packedCoordinates;
+        }
+
+        @JsonIgnore
+        public void setPackedCoordinates(PackedCoordinates packedCoordinates) {
+            this.packedCoordinates = packedCoordinates;
+        }
     }
 
+    /**
+     * Multi-polygon whose coordinates are stored packed (see {@link PackedCoordinates}).
+     * The nested arrays returned by {@link #getCoordinates()} are built on each call.
+     */
     public static class MultiPolygon extends Geometry<double[][][][]>{
+        private PackedCoordinates packedCoordinates;
+
         public MultiPolygon() {
             super(GeometryType.MultiPolygon);
         }
@@ -129,5 +163,25 @@ public abstract class Geometry<T> {
         public int getRank() {
             return 4;
         }
+
+        @Override
+        public double[][][][] getCoordinates() {
+            return packedCoordinates != null ? packedCoordinates.toMultiPolygon() : null;
+        }
+
+        @Override
+        public void setCoordinates(double[][][][] coordinates) {
+            this.packedCoordinates = coordinates != null ? PackedCoordinates.ofMultiPolygon(coordinates) : null;
+        }
+
+        @JsonIgnore
+        public PackedCoordinates getPackedCoordinates() {
+            return packedCoordinates;
+        }
+
+        @JsonIgnore
+        public void setPackedCoordinates(PackedCoordinates packedCoordinates) {
+            this.packedCoordinates = packedCoordinates;
+        }
     }
 }
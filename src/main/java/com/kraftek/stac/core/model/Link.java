@@ -1,5 +1,9 @@
 package com.kraftek.stac.core.model;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.JsonNode;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -96,8 +100,9 @@ public class Link {
     }
 
     /**
-     * For POST requests, the resource can specify the HTTP body as a JSON object
+     * For POST requests, the resource can specify the HTTP body as a JSON object (kept here as JSON text)
      */
+    @JsonRawValue
     public String getBody() {
         return body;
     }
@@ -106,6 +111,14 @@ public class Link {
         this.body = body;
     }
 
+    /**
+     * Sets the body from its JSON form, keeping it as JSON text
+     */
+    @JsonSetter("body")
+    public void setBody(JsonNode body) {
+        this.body = body == null || body.isNull() ? null : body.toString();
+    }
+
     /**
      * This is only valid when the server is responding to POST request.
      * If merge is true, the client is expected to merge the body value
@@ -0,0 +1,245 @@
+package com.kraftek.stac.core.model;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage of the coordinates of polygons: the ordinates of all the vertices are kept in a single array,
+ * while the rings and the parts (polygons) are delimited by offsets.
+ * - the ordinates of vertex <code>v</code> are <code>values[v * dimension]</code> ... <code>values[(v + 1) * dimension - 1]</code>;
+ * - ring <code>r</code> has the vertices <code>ringOffsets[r]</code> ... <code>ringOffsets[r + 1] - 1</code>;
+ * - part <code>p</code> has the rings <code>partOffsets[p]</code> ... <code>partOffsets[p + 1] - 1</code>.
+ * If the vertices do not have the same number of ordinates, the missing ordinates are set to <code>NaN</code>.
+ *
+ * @author Cosmin Cara
+ */
+public final class PackedCoordinates {
+    private final double[] values;
+    private final int dimension;
+    private final int[] ringOffsets;
+    private final int[] partOffsets;
+
+    /**
+     * Creates packed coordinates from their components (the arrays are not copied).
+     * @param values        The ordinates of the vertices
+     * @param dimension     The number of ordinates of a vertex
+     * @param ringOffsets   The index of the first vertex of each ring, followed by the number of vertices
+     * @param partOffsets   The index of the first ring of each part, followed by the number of rings
+     */
+    public PackedCoordinates(double[] values, int dimension, int[] ringOffsets, int[] partOffsets) {
+        if (dimension <= 0 || ringOffsets.length == 0 || partOffsets.length == 0 ||
+                ringOffsets[ringOffsets.length - 1] * dimension != values.length ||
+                partOffsets[partOffsets.length - 1] != ringOffsets.length - 1) {
+            throw new IllegalArgumentException("Inconsistent packed coordinates");
+        }
+        this.values = values;
+        this.dimension = dimension;
+        this.ringOffsets = ringOffsets;
+        this.partOffsets = partOffsets;
+    }
+
+    /**
+     * Packs the coordinates of a polygon
+     * @param rings The rings of the polygon
+     */
+    public static PackedCoordinates ofPolygon(double[][][] rings) {
+        final Builder builder = new Builder();
+        addPolygon(builder, rings);
+        return builder.build();
+    }
+
+    /**
+     * Packs the coordinates of a multi-polygon
+     * @param polygons  The polygons
+     */
+    public static PackedCoordinates ofMultiPolygon(double[][][][] polygons) {
+        final Builder builder = new Builder();
+        for (double[][][] polygon : polygons) {
+            addPolygon(builder, polygon);
+        }
+        return builder.build();
+    }
+
+    private static void addPolygon(Builder builder, double[][][] rings) {
+        for (double[][] ring : rings) {
+            for (double[] vertex : ring) {
+                for (double value : vertex) {
+                    builder.add(value);
+                }
+                builder.endVertex();
+            }
+            builder.endRing();
+        }
+        builder.endPart();
+    }
+
+    /**
+     * The ordinates of all the vertices (the array is not copied)
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * The index of the first vertex of each ring, followed by the number of vertices (the array is not copied)
+     */
+    public int[] getRingOffsets() {
+        return ringOffsets;
+    }
+
+    /**
+     * The index of the first ring of each part, followed by the number of rings (the array is not copied)
+     */
+    public int[] getPartOffsets() {
+        return partOffsets;
+    }
+
+    public int getVertexCount() {
+        return values.length / dimension;
+    }
+
+    public int getRingCount() {
+        return ringOffsets.length - 1;
+    }
+
+    public int getPartCount() {
+        return partOffsets.length - 1;
+    }
+
+    /**
+     * Returns an ordinate of a vertex
+     * @param vertex    The index of the vertex
+     * @param axis      The index of the ordinate (0 for x, 1 for y, 2 for z)
+     */
+    public double getOrdinate(int vertex, int axis) {
+        return values[vertex * dimension + axis];
+    }
+
+    /**
+     * Returns the coordinates of the first part, as nested arrays (rings, vertices, ordinates)
+     */
+    public double[][][] toPolygon() {
+        return getPartCount() > 0 ? toPolygon(0) : new double[0][][];
+    }
+
+    /**
+     * Returns the coordinates of all the parts, as nested arrays (polygons, rings, vertices, ordinates)
+     */
+    public double[][][][] toMultiPolygon() {
+        final double[][][][] polygons = new double[getPartCount()][][][];
+        for (int part = 0; part < polygons.length; part++) {
+            polygons[part] = toPolygon(part);
+        }
+        return polygons;
+    }
+
+    private double[][][] toPolygon(int part) {
+        final int firstRing = partOffsets[part];
+        final double[][][] rings = new double[partOffsets[part + 1] - firstRing][][];
+        for (int r = 0; r < rings.length; r++) {
+            final int firstVertex = ringOffsets[firstRing + r];
+            final double[][] vertices = new double[ringOffsets[firstRing + r + 1] - firstVertex][];
+            for (int v = 0; v < vertices.length; v++) {
+                final int start = (firstVertex + v) * dimension;
+                vertices[v] = Arrays.copyOfRange(values, start, start + dimension);
+            }
+            rings[r] = vertices;
+        }
+        return rings;
+    }
+
+    /**
+     * Accumulates the ordinates, vertex by vertex, ring by ring and part by part.
+     */
+    public static final class Builder {
+        private double[] values = new double[64];
+        private int count;
+        private int dimension;
+        private int vertexStart;
+        private int vertices;
+        private int[] ringOffsets = new int[] { 0, 0, 0, 0 };
+        private int rings;
+        private int[] partOffsets = new int[] { 0, 0 };
+        private int parts;
+
+        /**
+         * Adds an ordinate to the current vertex
+         */
+        public void add(double value) {
+            if (this.count == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.count * 2);
+            }
+            this.values[this.count++] = value;
+        }
+
+        /**
+         * Ends the current vertex
+         */
+        public void endVertex() {
+            final int size = this.count - this.vertexStart;
+            if (this.vertices == 0) {
+                this.dimension = size;
+            } else if (size < this.dimension) {
+                while (this.count - this.vertexStart < this.dimension) {
+                    add(Double.NaN);
+                }
+            } else if (size > this.dimension) {
+                widen(size);
+            }
+            this.vertexStart = this.count;
+            this.vertices++;
+        }
+
+        /**
+         * Ends the current ring
+         */
+        public void endRing() {
+            if (++this.rings == this.ringOffsets.length) {
+                this.ringOffsets = Arrays.copyOf(this.ringOffsets, this.rings * 2);
+            }
+            this.ringOffsets[this.rings] = this.vertices;
+        }
+
+        /**
+         * Ends the current part
+         */
+        public void endPart() {
+            if (++this.parts == this.partOffsets.length) {
+                this.partOffsets = Arrays.copyOf(this.partOffsets, this.parts * 2);
+            }
+            this.partOffsets[this.parts] = this.rings;
+        }
+
+        public PackedCoordinates build() {
+            if (this.dimension == 0) {
+                // only empty vertices were added
+                this.dimension = 1;
+                while (this.count < this.vertices) {
+                    add(Double.NaN);
+                }
+                this.vertexStart = this.count;
+            }
+            return new PackedCoordinates(Arrays.copyOf(this.values, this.count), this.dimension,
+                                         Arrays.copyOf(this.ringOffsets, this.rings + 1),
+                                         Arrays.copyOf(this.partOffsets, this.parts + 1));
+        }
+
+        /**
+         * Re-packs the vertices already added to a larger dimension, padding them with NaN
+         */
+        private void widen(int newDimension) {
+            final double[] widened = new double[Math.max(this.values.length, (this.vertices + 1) * newDimension)];
+            Arrays.fill(widened, Double.NaN);
+            for (int v = 0; v < this.vertices; v++) {
+                System.arraycopy(this.values, v * this.dimension, widened, v * newDimension, this.dimension);
+            }
+            System.arraycopy(this.values, this.vertexStart, widened, this.vertices * newDimension, newDimension);
+            this.count = (this.vertices + 1) * newDimension;
+            this.values = widened;
+            this.dimension = newDimension;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.kraftek.stac.core.model.extensions;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.kraftek.stac.core.model.Extensible;
 
+import java.io.IOException;
+
 /**
  * Base class for an object extension.
  * @param <E>   The type of the parent (object onto which the extension is registered)
@@ -28,4 +33,17 @@ public abstract class Extension<E extends Extensible> {
      * @throws JsonProcessingException
      */
     public abstract void extractField(TreeNode node, String name) throws JsonProcessingException;
+    /**
+     * Deserializes the field value from the current value of the parser (which is left on the last token of the value).
+     * By default, the value is read as a node and passed to {@link #extractField(TreeNode, String)}; extensions may
+     * override this to read the value directly.
+     * @param parser    The JSON parser, positioned on the value of the field
+     * @param name      The name of the field
+     * @throws IOException
+     */
+    public void readField(JsonParser parser, String name) throws IOException {
+        final ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.set(name, parser.readValueAsTree());
+        extractField(node, name);
+    }
 }
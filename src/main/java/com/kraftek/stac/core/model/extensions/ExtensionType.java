@@ -7,6 +7,9 @@ import com.kraftek.stac.core.model.extensions.projection.ProjFields;
 import com.kraftek.stac.core.model.extensions.view.ViewExtension;
 import com.kraftek.stac.core.model.extensions.view.ViewFields;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Enumeration of the supported extension types.
  *
@@ -14,21 +17,48 @@ import com.kraftek.stac.core.model.extensions.view.ViewFields;
  */
 public enum ExtensionType {
     EO(EOExtension.class, EoFields.PREFIX,
-       "https://stac-extensions.github.io/eo/v1.0.0/schema.json"),
+       "https://stac-extensions.github.io/eo/v1.0.0/schema.json",
+       "eo",
+       EoFields.BANDS, EoFields.CLOUD_COVER),
     PROJ(ProjExtension.class,
          ProjFields.PREFIX,
-         "https://stac-extensions.github.io/projection/v1.0.0/schema.json"),
+         "https://stac-extensions.github.io/projection/v1.0.0/schema.json",
+         "projection",
+         ProjFields.EPSG, ProjFields.WKT_2, ProjFields.PROJJSON, ProjFields.CENTROID, ProjFields.SHAPE,
+         ProjFields.TRANSFORM),
     VIEW(ViewExtension.class,
          ViewFields.PREFIX,
-         "https://stac-extensions.github.io/view/v1.0.0/schema.json");
+         "https://stac-extensions.github.io/view/v1.0.0/schema.json",
+         "view",
+         ViewFields.OFF_NADIR, ViewFields.INCIDENCE_ANGLE, ViewFields.AZIMUTH, ViewFields.SUN_AZIMUTH,
+         ViewFields.SUN_ELEVATION);
+
+    private static final Map<String, ExtensionType> byURI = new HashMap<>();
+    private static final Map<String, ExtensionType> byField = new HashMap<>();
+
+    static {
+        for (ExtensionType type : values()) {
+            byURI.put(type.description, type);
+            byURI.put(versionless(type.description), type);
+            // identifier used by the STAC versions before 1.0
+            byURI.put(type.shortName, type);
+            for (String field : type.fields) {
+                byField.put(field, type);
+            }
+        }
+    }
 
     private final String value;
     private final String description;
+    private final String shortName;
+    private final String[] fields;
     private final Class<? extends Extension> extClass;
 
-    ExtensionType(Class<? extends Extension> clazz, String value, String description) {
+    ExtensionType(Class<? extends Extension> clazz, String value, String description, String shortName, String... fields) {
         this.value = value;
         this.description = description;
+        this.shortName = shortName;
+        this.fields = fields;
         this.extClass = clazz;
     }
 
@@ -36,12 +66,55 @@ public enum ExtensionType {
 
     public String value() { return this.value; }
 
+    /**
+     * Returns the extension type identified by the given schema URI, whatever the version of the schema
+     * (for example, <code>https://stac-extensions.github.io/eo/v1.1.0/schema.json</code>), or <code>null</code>
+     * if the extension is not supported.
+     * @param uri   The URI of the extension schema
+     */
     public static ExtensionType fromURI(String uri) {
-        for (ExtensionType type : ExtensionType.values()) {
-            if (type.description.equals(uri)) {
-                return type;
+        if (uri == null) {
+            return null;
+        }
+        final ExtensionType type = byURI.get(uri);
+        return type != null ? type : byURI.get(versionless(uri));
+    }
+
+    /**
+     * Returns the extension type to which the given field belongs (by its name or, for the fields not known,
+     * by its prefix), or <code>null</code> if the field does not belong to a supported extension.
+     * @param name  The name of the field
+     */
+    public static ExtensionType forField(String name) {
+        final ExtensionType type = byField.get(name);
+        if (type != null) {
+            return type;
+        }
+        for (ExtensionType extensionType : values()) {
+            if (name.startsWith(extensionType.value)) {
+                return extensionType;
             }
         }
         return null;
     }
+
+    /**
+     * Removes the scheme, the version and the schema file name from the URI of an extension schema
+     */
+    private static String versionless(String uri) {
+        String result = uri;
+        final int scheme = result.indexOf("://");
+        if (scheme > 0) {
+            result = result.substring(scheme + 3);
+        }
+        if (result.endsWith(".json")) {
+            result = result.substring(0, Math.max(result.lastIndexOf('/'), 0));
+        }
+        final int version = result.lastIndexOf('/');
+        if (version >= 0 && version + 2 < result.length() && result.charAt(version + 1) == 'v'
+                && Character.isDigit(result.charAt(version + 2))) {
+            result = result.substring(0, version);
+        }
+        return result;
+    }
 }
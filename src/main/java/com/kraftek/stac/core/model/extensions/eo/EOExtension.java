@@ -1,11 +1,15 @@
 package com.kraftek.stac.core.model.extensions.eo;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.TreeNode;
 import com.kraftek.stac.core.model.Extensible;
 import com.kraftek.stac.core.model.extensions.Extension;
+import com.kraftek.stac.core.parser.JsonValueHelper;
 import com.kraftek.stac.core.parser.STACParser;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,6 +43,26 @@ public class EOExtension<E extends Extensible> extends Extension<E> {
         }
     }
 
+    @Override
+    public void readField(JsonParser parser, String name) throws IOException {
+        if (EoFields.BANDS.equals(name)) {
+            if (parser.currentToken() != JsonToken.START_ARRAY || parser.getCodec() == null) {
+                super.readField(parser, name);
+                return;
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                addBand(parser.readValueAs(Band.class));
+            }
+        } else if (EoFields.CLOUD_COVER.equals(name)) {
+            final Double value = JsonValueHelper.readDouble(parser);
+            if (value != null) {
+                setCloud_cover(value);
+            }
+        } else {
+            parser.skipChildren();
+        }
+    }
+
     public Double getCloud_cover() {
         return parent.getField(EoFields.CLOUD_COVER);
     }
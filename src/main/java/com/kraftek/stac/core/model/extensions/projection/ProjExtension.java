@@ -1,10 +1,15 @@
 package com.kraftek.stac.core.model.extensions.projection;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.TreeNode;
 import com.kraftek.stac.core.model.Extensible;
 import com.kraftek.stac.core.model.extensions.Extension;
 import com.kraftek.stac.core.parser.JsonValueHelper;
+
+import java.io.IOException;
+
 /**
  * Projection extension
  * @implSpec <a href="https://github.com/stac-extensions/projection">Projection Extension Specification</a>
@@ -42,6 +47,41 @@ public class ProjExtension<E extends Extensible> extends Extension<E> {
         }
     }
 
+    @Override
+    public void readField(JsonParser parser, String name) throws IOException {
+        if (ProjFields.CENTROID.equals(name)) {
+            final Centroid centroid = new Centroid();
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("lat".equals(field)) {
+                        centroid.setLat(JsonValueHelper.readDouble(parser));
+                    } else if ("lon".equals(field)) {
+                        centroid.setLon(JsonValueHelper.readDouble(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            setCentroid(centroid);
+        } else if (ProjFields.EPSG.equals(name)) {
+            setEpsg(JsonValueHelper.readInt(parser));
+        } else if (ProjFields.PROJJSON.equals(name)) {
+            setProjjson(JsonValueHelper.readString(parser));
+        } else if (ProjFields.SHAPE.equals(name)) {
+            setShape(JsonValueHelper.readDoubleArray1(parser));
+        } else if (ProjFields.TRANSFORM.equals(name)) {
+            setTransform(JsonValueHelper.readDoubleArray1(parser));
+        } else if (ProjFields.WKT_2.equals(name)) {
+            setWkt2(JsonValueHelper.readString(parser));
+        } else {
+            parser.skipChildren();
+        }
+    }
+
     public Integer getEpsg() {
         return parent.getField(ProjFields.EPSG);
     }
@@ -1,11 +1,14 @@
 package com.kraftek.stac.core.model.extensions.view;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.TreeNode;
 import com.kraftek.stac.core.model.Extensible;
 import com.kraftek.stac.core.model.extensions.Extension;
 import com.kraftek.stac.core.parser.JsonValueHelper;
 
+import java.io.IOException;
+
 /**
  * View Geometry extension
  * @implSpec <a href="https://github.com/stac-extensions/view">View Geometry Extension Specification</a>
@@ -37,6 +40,23 @@ public class ViewExtension<E extends Extensible> extends Extension<E> {
         }
     }
 
+    @Override
+    public void readField(JsonParser parser, String name) throws IOException {
+        if (ViewFields.AZIMUTH.equals(name)) {
+            setAzimuth(JsonValueHelper.readDouble(parser));
+        } else if (ViewFields.INCIDENCE_ANGLE.equals(name)) {
+            setIncidence_angle(JsonValueHelper.readDouble(parser));
+        } else if (ViewFields.OFF_NADIR.equals(name)) {
+            setOff_nadir(JsonValueHelper.readDouble(parser));
+        } else if (ViewFields.SUN_AZIMUTH.equals(name)) {
+            setSun_azimuth(JsonValueHelper.readDouble(parser));
+        } else if (ViewFields.SUN_ELEVATION.equals(name)) {
+            setSun_elevation(JsonValueHelper.readDouble(parser));
+        } else {
+            parser.skipChildren();
+        }
+    }
+
     public Double getOff_nadir() {
         return parent.getField(ViewFields.OFF_NADIR);
     }
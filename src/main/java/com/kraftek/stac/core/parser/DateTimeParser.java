@@ -0,0 +1,146 @@
+package com.kraftek.stac.core.parser;
+
+import ro.cs.tao.utils.DateUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parser of the date/time values found in STAC documents.
+ * The common RFC 3339 shapes (<code>yyyy-MM-ddTHH:mm:ss[.f{0,6}][Z|&plusmn;HH:MM]</code>, with <code>T</code> or a
+ * space as separator) are decoded directly from the characters. Any other text is handed to the resilient formatter
+ * of {@link DateUtils}. As with that formatter, the offset is not applied: the result is the local date/time written
+ * in the text.
+ *
+ * @author Cosmin Cara
+ */
+public class DateTimeParser {
+    private static final DateTimeFormatter format = DateUtils.getResilientFormatterAtUTC();
+    private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int[] nanoScale = { 1_000_000_000, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000 };
+
+    private DateTimeParser() { }
+
+    /**
+     * Parses a date/time value
+     * @param value The text to parse
+     * @throws java.time.format.DateTimeParseException if the text cannot be parsed
+     */
+    public static LocalDateTime parseDateTime(String value) {
+        final LocalDateTime result = tryParseDateTime(value);
+        return result != null ? result : LocalDateTime.parse(value, format);
+    }
+
+    /**
+     * Parses a date value (<code>yyyy-MM-dd</code>)
+     * @param value The text to parse
+     * @throws java.time.format.DateTimeParseException if the text cannot be parsed
+     */
+    public static LocalDate parseDate(String value) {
+        final int date = value.length() == 10 ? dateFields(value) : -1;
+        return date >= 0 ? LocalDate.of(date / 10000, date / 100 % 100, date % 100) : LocalDate.parse(value, dateFormat);
+    }
+
+    /**
+     * Decodes the common shapes of date/time values, or returns <code>null</code> if the text has another shape
+     * (or invalid field values)
+     */
+    static LocalDateTime tryParseDateTime(String value) {
+        final int length = value.length();
+        if (length < 19) {
+            return null;
+        }
+        final int date = dateFields(value);
+        final char separator = value.charAt(10);
+        if (date < 0 || (separator != 'T' && separator != ' ') || value.charAt(13) != ':' || value.charAt(16) != ':') {
+            return null;
+        }
+        final int hour = digits(value, 11, 13);
+        final int minute = digits(value, 14, 16);
+        final int second = digits(value, 17, 19);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        int index = 19;
+        int nano = 0;
+        if (index < length && value.charAt(index) == '.') {
+            final int start = ++index;
+            while (index < length && isDigit(value.charAt(index))) {
+                // as for the resilient formatter, at most 6 digits (microseconds)
+                if (index - start == 6) {
+                    return null;
+                }
+                nano = nano * 10 + (value.charAt(index++) - '0');
+            }
+            nano *= nanoScale[index - start];
+        }
+        if (index < length) {
+            final char zone = value.charAt(index);
+            if (zone == '+' || zone == '-') {
+                // the offset is validated, but not applied
+                if (index + 6 != length || value.charAt(index + 3) != ':') {
+                    return null;
+                }
+                final int offsetHours = digits(value, index + 1, index + 3);
+                final int offsetMinutes = digits(value, index + 4, index + 6);
+                if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    return null;
+                }
+            } else if (zone != 'Z' || index + 1 != length) {
+                return null;
+            }
+        }
+        return LocalDateTime.of(date / 10000, date / 100 % 100, date % 100, hour, minute, second, nano);
+    }
+
+    /**
+     * Decodes the <code>yyyy-MM-dd</code> prefix of the text as <code>yyyyMMdd</code>, or returns -1 if it has
+     * another shape (or an invalid date)
+     */
+    private static int dateFields(String value) {
+        if (value.length() < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return -1;
+        }
+        final int year = digits(value, 0, 4);
+        final int month = digits(value, 5, 7);
+        final int day = digits(value, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 28 && day > lengthOfMonth(year, month)) {
+            return -1;
+        }
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the number written in the given range of the text, or -1 if the range contains other characters
+     */
+    private static int digits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
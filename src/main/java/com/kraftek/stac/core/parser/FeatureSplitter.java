@@ -0,0 +1,198 @@
+package com.kraftek.stac.core.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Locates, by a structural scan of the bytes of an ItemCollection (UTF-8), the <code>features</code> array and
+ * the byte ranges of its elements, without decoding any value.
+ * Only the nesting of objects and arrays and the boundaries of strings are tracked, which is enough because
+ * the structural characters of JSON are ASCII and never appear inside multi-byte UTF-8 sequences.
+ *
+ * @author Cosmin Cara
+ */
+final class FeatureSplitter {
+    private static final byte[] featuresKey = "features".getBytes(StandardCharsets.US_ASCII);
+    private final byte[] content;
+    private int arrayStart = -1;
+    private int arrayEnd = -1;
+    private int[] bounds = new int[64];
+    private int count;
+
+    private FeatureSplitter(byte[] content) {
+        this.content = content;
+    }
+
+    /**
+     * Scans the content. Returns <code>null</code> if the content is not an object having a <code>features</code> array.
+     */
+    static FeatureSplitter scan(byte[] content) {
+        final FeatureSplitter splitter = new FeatureSplitter(content);
+        return splitter.scanObject() ? splitter : null;
+    }
+
+    /**
+     * The offset of the opening bracket of the <code>features</code> array
+     */
+    int getArrayStart() {
+        return arrayStart;
+    }
+
+    /**
+     * The offset of the closing bracket of the <code>features</code> array
+     */
+    int getArrayEnd() {
+        return arrayEnd;
+    }
+
+    /**
+     * The number of elements of the <code>features</code> array
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * The offset of the first byte of the element with the given index
+     */
+    int getStart(int index) {
+        return bounds[index * 2];
+    }
+
+    /**
+     * The length, in bytes, of the element with the given index
+     */
+    int getLength(int index) {
+        return bounds[index * 2 + 1] - bounds[index * 2];
+    }
+
+    /**
+     * Returns a copy of the content in which the <code>features</code> array is empty
+     */
+    byte[] withoutFeatures() {
+        final byte[] result = new byte[this.content.length - (this.arrayEnd - this.arrayStart - 1)];
+        System.arraycopy(this.content, 0, result, 0, this.arrayStart + 1);
+        System.arraycopy(this.content, this.arrayEnd, result, this.arrayStart + 1, this.content.length - this.arrayEnd);
+        return result;
+    }
+
+    private boolean scanObject() {
+        final byte[] data = this.content;
+        int i = skipWhitespace(0);
+        if (i >= data.length || data[i] != '{') {
+            return false;
+        }
+        int depth = 0;
+        for (; i < data.length; i++) {
+            final byte b = data[i];
+            if (b == '"') {
+                final int start = i;
+                i = skipString(i);
+                if (i < 0) {
+                    return false;
+                }
+                if (depth == 1 && this.arrayStart < 0 && isKey(start, i)) {
+                    final int colon = skipWhitespace(i + 1);
+                    final int value = skipWhitespace(colon + 1);
+                    if (colon < data.length && data[colon] == ':' && value < data.length && data[value] == '[') {
+                        return scanFeatures(value);
+                    }
+                }
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the ranges of the elements of the array opened at the given offset
+     */
+    private boolean scanFeatures(int open) {
+        final byte[] data = this.content;
+        this.arrayStart = open;
+        int depth = 0;
+        int elementStart = -1;
+        int elementEnd = -1;
+        for (int i = open + 1; i < data.length; i++) {
+            final byte b = data[i];
+            if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                continue;
+            }
+            if (depth == 0 && (b == ',' || b == ']')) {
+                if (elementStart >= 0) {
+                    add(elementStart, elementEnd);
+                    elementStart = -1;
+                }
+                if (b == ']') {
+                    this.arrayEnd = i;
+                    return true;
+                }
+                continue;
+            }
+            if (elementStart < 0) {
+                elementStart = i;
+            }
+            if (b == '"') {
+                i = skipString(i);
+                if (i < 0) {
+                    return false;
+                }
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+            elementEnd = i + 1;
+        }
+        return false;
+    }
+
+    private void add(int start, int end) {
+        if (this.count * 2 == this.bounds.length) {
+            this.bounds = Arrays.copyOf(this.bounds, this.bounds.length * 2);
+        }
+        this.bounds[this.count * 2] = start;
+        this.bounds[this.count * 2 + 1] = end;
+        this.count++;
+    }
+
+    /**
+     * Returns the offset of the closing quote of the string opened at the given offset, or -1 if it is not closed
+     */
+    private int skipString(int open) {
+        final byte[] data = this.content;
+        for (int i = open + 1; i < data.length; i++) {
+            final byte b = data[i];
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isKey(int open, int close) {
+        if (close - open - 1 != featuresKey.length) {
+            return false;
+        }
+        for (int i = 0; i < featuresKey.length; i++) {
+            if (this.content[open + 1 + i] != featuresKey[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipWhitespace(int from) {
+        final byte[] data = this.content;
+        int i = from;
+        while (i < data.length && (data[i] == ' ' || data[i] == '\t' || data[i] == '\n' || data[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,221 @@
+package com.kraftek.stac.core.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.kraftek.stac.core.model.Item;
+import com.kraftek.stac.core.model.Link;
+import com.kraftek.stac.core.model.PageContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the features of an ItemCollection one at a time, as the parser advances through the document,
+ * so that the memory used does not depend on the size of the page.
+ * The other members of the collection (links, number of matched items, context) are available once the parser
+ * went past them; since they may follow the features, they are all known only after the last item was read.
+ * I/O errors occurring during the iteration are reported as {@link UncheckedIOException}.
+ *
+ * @author Cosmin Cara
+ */
+public class ItemCollectionReader implements Iterator<Item>, Closeable {
+    private static final Logger logger = Logger.getLogger(ItemCollectionReader.class.getName());
+    private final ObjectMapper mapper;
+    private final ObjectReader itemReader;
+    private final JsonParser parser;
+    private String stacVersion;
+    private String type;
+    private List<Link> links;
+    private Integer numberMatched;
+    private Integer numberReturned;
+    private PageContext context;
+    private boolean inFeatures;
+    private boolean finished;
+    private Item next;
+
+    ItemCollectionReader(ObjectMapper mapper, JsonParser parser) throws IOException {
+        this(mapper, parser, null);
+    }
+
+    ItemCollectionReader(ObjectMapper mapper, JsonParser parser, ParseProfile profile) throws IOException {
+        this.mapper = mapper;
+        this.itemReader = profile != null
+                          ? mapper.readerFor(Item.class).withAttribute(ParseProfile.class, profile)
+                          : mapper.readerFor(Item.class);
+        this.parser = parser;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IOException("Expected an ItemCollection object");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null && !this.finished) {
+            try {
+                this.next = advance();
+            } catch (IOException e) {
+                closeQuietly();
+                throw new UncheckedIOException(e);
+            }
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public Item next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Item item = this.next;
+        this.next = null;
+        return item;
+    }
+
+    /**
+     * Returns the remaining items as a sequential stream. Closing the stream closes this reader.
+     */
+    public Stream<Item> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                                    false)
+                            .onClose(this::closeQuietly);
+    }
+
+    /**
+     * Reads the rest of the document (skipping the remaining items), so that all the members of the collection are known.
+     */
+    public void readToEnd() throws IOException {
+        this.next = null;
+        if (this.inFeatures) {
+            JsonToken token;
+            while ((token = this.parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                this.parser.skipChildren();
+            }
+            this.inFeatures = false;
+        }
+        while (!this.finished) {
+            advance();
+        }
+    }
+
+    public String getStacVersion() {
+        return stacVersion;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * The links of the collection, or <code>null</code> if not (yet) read
+     */
+    public List<Link> getLinks() {
+        return links;
+    }
+
+    /**
+     * The number of items matching the request, or <code>null</code> if not (yet) read
+     */
+    public Integer getNumberMatched() {
+        return numberMatched;
+    }
+
+    /**
+     * The number of items in this page, or <code>null</code> if not (yet) read
+     */
+    public Integer getNumberReturned() {
+        return numberReturned;
+    }
+
+    /**
+     * The paging context, or <code>null</code> if not (yet) read
+     */
+    public PageContext getContext() {
+        return context;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.finished = true;
+        this.next = null;
+        this.parser.close();
+    }
+
+    /**
+     * Returns the next item, reading the collection members encountered before it.
+     * Returns <code>null</code> when the end of the document is reached.
+     */
+    private Item advance() throws IOException {
+        while (true) {
+            if (this.inFeatures) {
+                final JsonToken token = this.parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    return this.itemReader.readValue(this.parser);
+                }
+                if (token != JsonToken.VALUE_NULL) {
+                    this.inFeatures = false;
+                }
+                continue;
+            }
+            final JsonToken token = this.parser.nextToken();
+            if (token != JsonToken.FIELD_NAME) {
+                // end of the collection object (or of the input)
+                close();
+                return null;
+            }
+            final String field = this.parser.getCurrentName();
+            this.parser.nextToken();
+            switch (field) {
+                case "features":
+                    if (this.parser.currentToken() == JsonToken.START_ARRAY) {
+                        this.inFeatures = true;
+                    } else {
+                        this.parser.skipChildren();
+                    }
+                    break;
+                case "stac_version":
+                    this.stacVersion = this.parser.getValueAsString();
+                    break;
+                case "type":
+                    this.type = this.parser.getValueAsString();
+                    break;
+                case "links":
+                    this.links = this.mapper.readValue(this.parser, new TypeReference<List<Link>>() { });
+                    break;
+                case "numberMatched":
+                    this.numberMatched = this.parser.getValueAsInt();
+                    break;
+                case "numberReturned":
+                    this.numberReturned = this.parser.getValueAsInt();
+                    break;
+                case "context":
+                    this.context = this.mapper.readValue(this.parser, PageContext.class);
+                    break;
+                default:
+                    this.parser.skipChildren();
+                    break;
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            logger.log(Level.FINEST, "Error closing the parser", e);
+        }
+    }
+}
@@ -2,185 +2,538 @@ package com.kraftek.stac.core.parser;
 
 import com.fasterxml.jackson.core.JacksonException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.kraftek.stac.core.model.*;
 import com.kraftek.stac.core.model.extensions.Extension;
 import com.kraftek.stac.core.model.extensions.ExtensionType;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Deserialization from JSON class for an Item.
+ * The item is built directly from the parser tokens, without materializing the JSON tree.
+ * Since the extensions declared by the item drive the parsing of the properties and assets, these sections
+ * are buffered when they precede the <code>stac_extensions</code> field.
+ * If a {@link ParseProfile} is set as attribute of the reader, the parts of the item it does not keep are skipped.
+ * If the profile is lazy and the source bytes are set as attribute (see {@link LazyItem.Source}), the geometry, links,
+ * properties and assets are kept as raw JSON and decoded when first accessed, and if it has a {@link StringCanonicalizer},
+ * the repeated string values are replaced by their canonical instances.
  *
  * @author Cosmin Cara
  */
 public class ItemDeserializer extends StdDeserializer<Item> {
+    private static final Class<?>[] arrayTypes = { double.class, double[].class, double[][].class, double[][][].class };
+
     public ItemDeserializer() {
         super(Item.class);
     }
 
     @Override
     public Item deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JacksonException {
-        TreeNode root = p.readValueAsTree();
-        final Item item = new Item();
-        final Iterator<String> iterator = root.fieldNames();
-        TreeNode child;
-        List<String> extensions = JsonValueHelper.getStringArray(root, "stac_extensions");
-        boolean hasExtensions = false;
-        final Map<String, Extension<?>> itemExtensions = new HashMap<>();
-        final Map<String, ExtensionType> assetExtensionTypes = new HashMap<>();
-        if (extensions != null) {
-            for (String extension : extensions) {
-                ExtensionType extensionType = ExtensionType.fromURI(extension);
-                if (extensionType != null) {
-                    Extension<?> ext = item.registerExtension(extensionType);
-                    itemExtensions.put(ext.getPrefix(), ext);
-                    assetExtensionTypes.put(ext.getPrefix(), extensionType);
-                    hasExtensions = true;
-                }
-            }
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
         }
-        if (!hasExtensions) {
-            for (ExtensionType type : ExtensionType.values()) {
-                Extension<?> ext = item.registerExtension(type);
-                itemExtensions.put(ext.getPrefix(), ext);
-                assetExtensionTypes.put(ext.getPrefix(), type);
+        final ParseProfile profile = (ParseProfile) ctxt.getAttribute(ParseProfile.class);
+        final LazyItem.Source source = profile != null && profile.isLazy()
+                                       ? (LazyItem.Source) ctxt.getAttribute(LazyItem.Source.class) : null;
+        final LazyItem lazy = source != null ? new LazyItem(this, p.getCodec(), source) : null;
+        final Item item = lazy != null ? lazy : new Item();
+        final StringCanonicalizer strings = profile != null ? profile.getCanonicalizer() : null;
+        boolean deferred = false;
+        Set<ExtensionType> extensionTypes = null;
+        TokenBuffer properties = null;
+        TokenBuffer assets = null;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            final String field = p.getCurrentName();
+            p.nextToken();
+            final boolean keep = profile == null || profile.keepsField(field);
+            if (!keep && !"stac_extensions".equals(field)) {
+                p.skipChildren();
+                continue;
             }
-        }
-        final Map<String, Extension<?>> assetExtensions = new HashMap<>();
-        while (iterator.hasNext()) {
-            String field = iterator.next();
-            child = root.get(field);
             switch (field) {
                 case "stac_version":
-                    item.setStac_version(JsonValueHelper.getString(root, field));
+                    item.setStac_version(canonical(strings, stringValue(p)));
                     break;
                 case "type":
-                    String typeValue = JsonValueHelper.getString(root, field);
+                    String typeValue = stringValue(p);
                     try {
-                        item.setType(ItemType.valueOf(typeValue)); // Standard type
+                        item.setType(typeValue != null ? ItemType.valueOf(typeValue) : null); // Standard type
                     } catch (IllegalArgumentException e) {
                         System.out.println("Unknown ItemType: " + typeValue + ". Setting type to null.");
                         item.setType(null); // Gracefully handle unknown type
                     }
                     break;
                 case "id":
-                    item.setId(JsonValueHelper.getString(root, field));
+                    item.setId(stringValue(p));
                     break;
                 case "bbox":
-                    item.setBbox(JsonValueHelper.getDoubleArray1(root, field));
+                    item.setBbox((double[]) toArray(readNumbers(p), 1));
                     break;
                 case "geometry":
-                    item.setGeometry(Geometry.create(GeometryType.valueOf(JsonValueHelper.getString(child, "type"))));
-                    Geometry geometry = item.getGeometry();
-                    if (geometry != null) {
-                        switch (geometry.getRank()) {
-                            case 1:
-                                geometry.setCoordinates(JsonValueHelper.getDoubleArray1(child, "coordinates"));
-                                break;
-                            case 2:
-                                geometry.setCoordinates(JsonValueHelper.getDoubleArray2(child, "coordinates"));
-                                break;
-                            case 3:
-                                geometry.setCoordinates(JsonValueHelper.getDoubleArray3(child, "coordinates"));
-                                break;
-                            case 4:
-                                geometry.setCoordinates(JsonValueHelper.getDoubleArray4(child, "coordinates"));
-                                break;
-                        }
+                    if (lazy == null || !lazy.defer(LazyItem.GEOMETRY, p)) {
+                        item.setGeometry(readGeometry(p));
                     }
                     break;
                 case "links":
-                    if (child.isArray()) {
-                        for (int i = 0; i < child.size(); i++) {
-                            item.addLink(new STACParser().parseLink(child.get(i).toString()));
+                    if (lazy != null && lazy.defer(LazyItem.LINKS, p)) {
+                        break;
+                    }
+                    if (p.currentToken() == JsonToken.START_ARRAY) {
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            item.addLink(p.currentToken() == JsonToken.VALUE_NULL
+                                         ? null : canonical(strings, ctxt.readValue(p, Link.class)));
                         }
+                    } else {
+                        p.skipChildren();
                     }
                     break;
                 case "properties":
-                    Iterator<String> namesIterator = child.fieldNames();
-                    while (namesIterator.hasNext()) {
-                        final String name = namesIterator.next();
-                        if (Item.DATETIME.equals(name)) {
-                            item.setDatetime(JsonValueHelper.getDateTime(child, name));
-                        }
-                        String prefix;
-                        if (name.contains(":") &&
-                                itemExtensions.containsKey((prefix = name.substring(0, name.indexOf(':') + 1)))) {
-                            // If there is an associated extension, it can handle the field
-                            itemExtensions.get(prefix).extractField(child, name);
-                        } else { // Non-core fields from other extensions not known
-                            setUnknownField(child, name, item);
-                        }
+                    if (lazy != null && lazy.defer(LazyItem.PROPERTIES, p)) {
+                        deferred = true;
+                    } else if (extensionTypes == null) {
+                        properties = ctxt.bufferAsCopyOfValue(p);
+                    } else {
+                        readProperties(p, item, extensionTypes, profile);
                     }
                     break;
                 case "assets":
-                    namesIterator = child.fieldNames();
-                    while (namesIterator.hasNext()) {
-                        final String name = namesIterator.next();
-                        final Asset asset = new Asset();
-                        if (assetExtensions.isEmpty()){
-                            assetExtensionTypes.values().forEach(e -> {
-                                Extension<?> extension = asset.registerExtension(e);
-                                assetExtensions.put(extension.getPrefix(), extension);
-                            });
-                        }
-                        TreeNode assetNode = child.get(name);
-                        asset.setHref(JsonValueHelper.getString(assetNode, "href"));
-                        asset.setType(JsonValueHelper.getString(assetNode, "type"));
-                        asset.setTitle(JsonValueHelper.getString(assetNode, "title"));
-                        asset.setDescription(JsonValueHelper.getString(assetNode, "description"));
-                        asset.setRoles(JsonValueHelper.getStringArray(assetNode, "roles"));
-                        Iterator<String> assetFields = assetNode.fieldNames();
-                        while (assetFields.hasNext()) {
-                            final String assetField = assetFields.next();
-                            if (!Asset.coreFieldNames().contains(assetField)) {
-                                String prefix;
-                                if (assetField.contains(":") &&
-                                        assetExtensions.containsKey((prefix = assetField.substring(0, assetField.indexOf(':') + 1)))) {
-                                    assetExtensions.get(prefix).extractField(assetNode, assetField);
-                                } else {
-                                    setUnknownField(assetNode, assetField, asset);
-                                }
-                            }
-                        }
-                        item.addAsset(name, asset);
-                        assetExtensions.clear();
+                    if (lazy != null && lazy.defer(LazyItem.ASSETS, p)) {
+                        deferred = true;
+                    } else if (extensionTypes == null) {
+                        assets = ctxt.bufferAsCopyOfValue(p);
+                    } else {
+                        readAssets(p, item, extensionTypes, profile);
+                    }
+                    break;
+                case "stac_extensions":
+                    final JsonNode extensions = p.readValueAsTree();
+                    if (keep) {
+                        item.addField(field, canonical(strings, extensions.toString()));
                     }
+                    extensionTypes = registerExtensions(item, extensions, profile);
                     break;
                 default:
-                    item.addField(field, child.toString());
+                    item.addField(field, JsonValueHelper.toJson(p));
                     break;
             }
         }
-
+        if (properties != null || assets != null || deferred) {
+            if (extensionTypes == null) {
+                extensionTypes = registerExtensions(item, null, profile);
+            }
+            if (properties != null) {
+                try (JsonParser buffered = properties.asParser(p.getCodec())) {
+                    buffered.nextToken();
+                    readProperties(buffered, item, extensionTypes, profile);
+                }
+            }
+            if (assets != null) {
+                try (JsonParser buffered = assets.asParser(p.getCodec())) {
+                    buffered.nextToken();
+                    readAssets(buffered, item, extensionTypes, profile);
+                }
+            }
+        }
+        if (lazy != null) {
+            lazy.seal(extensionTypes, profile);
+        }
         return item;
     }
 
-    private void setUnknownField(TreeNode parent, String name, Extensible target) throws JsonProcessingException {
-        TreeNode node = parent.get(name);
-        if (node.numberType() != null) {
-            switch (node.numberType()) {
+    /**
+     * Registers with the item the known extensions it declares, or all the known extensions if it declares none of them
+     * (in both cases, only those kept by the profile, if any).
+     * Returns the registered extension types.
+     */
+    private Set<ExtensionType> registerExtensions(Item item, JsonNode extensions, ParseProfile profile) {
+        final List<ExtensionType> declared = new ArrayList<>();
+        if (extensions != null && extensions.isArray()) {
+            for (JsonNode extension : extensions) {
+                final ExtensionType extensionType = ExtensionType.fromURI(JsonValueHelper.getStringValue(extension));
+                if (extensionType != null) {
+                    declared.add(extensionType);
+                }
+            }
+        }
+        final Set<ExtensionType> types = EnumSet.noneOf(ExtensionType.class);
+        for (ExtensionType type : declared.isEmpty() ? Arrays.asList(ExtensionType.values()) : declared) {
+            if (profile == null || profile.keepsExtension(type)) {
+                item.registerExtension(type);
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    void readProperties(JsonParser p, Item item, Set<ExtensionType> extensionTypes,
+                                ParseProfile profile) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = p.getCurrentName();
+            p.nextToken();
+            if (profile != null && !profile.keepsProperty(name)) {
+                p.skipChildren();
+                continue;
+            }
+            final Extension<?> extension = extensionFor(item, name, extensionTypes);
+            if (extension != null) {
+                // If there is an associated extension, it can handle the field
+                extension.readField(p, name);
+            } else { // Non-core fields from other extensions not known
+                if (Item.DATETIME.equals(name)) {
+                    final String value = stringValue(p);
+                    item.setDatetime(value != null ? DateTimeParser.parseDateTime(value) : null);
+                }
+                setUnknownField(p, name, item, profile);
+            }
+        }
+    }
+
+    void readAssets(JsonParser p, Item item, Set<ExtensionType> extensionTypes,
+                            ParseProfile profile) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = p.getCurrentName();
+            p.nextToken();
+            if (profile != null && !profile.keepsAsset(name)) {
+                p.skipChildren();
+                continue;
+            }
+            item.addAsset(name, readAsset(p, extensionTypes, profile));
+        }
+    }
+
+    private Asset readAsset(JsonParser p, Set<ExtensionType> extensionTypes,
+                            ParseProfile profile) throws IOException {
+        final Asset asset = new Asset();
+        final StringCanonicalizer strings = profile != null ? profile.getCanonicalizer() : null;
+        extensionTypes.forEach(asset::registerExtension);
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return asset;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "href":
+                    asset.setHref(stringValue(p));
+                    break;
+                case "type":
+                    asset.setType(canonical(strings, stringValue(p)));
+                    break;
+                case "title":
+                    asset.setTitle(canonical(strings, stringValue(p)));
+                    break;
+                case "description":
+                    asset.setDescription(stringValue(p));
+                    break;
+                case "roles":
+                    asset.setRoles(readStrings(p, strings));
+                    break;
+                default:
+                    if (Asset.coreFieldNames().contains(field) || (profile != null && !profile.keepsExtensionField(field))) {
+                        p.skipChildren();
+                        break;
+                    }
+                    final Extension<?> extension = extensionFor(asset, field, extensionTypes);
+                    if (extension != null) {
+                        extension.readField(p, field);
+                    } else {
+                        setUnknownField(p, field, asset, profile);
+                    }
+                    break;
+            }
+        }
+        return asset;
+    }
+
+    Geometry<?> readGeometry(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        String type = null;
+        Object coordinates = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = p.getCurrentName();
+            p.nextToken();
+            if ("type".equals(field)) {
+                type = stringValue(p);
+            } else if ("coordinates".equals(field)) {
+                final boolean packed = "Polygon".equals(type) || "MultiPolygon".equals(type);
+                if (packed && p.currentToken() == JsonToken.START_ARRAY) {
+                    // polygons are streamed directly into their packed storage (the other geometries are not packed)
+                    coordinates = readPacked(p, rankOf(type));
+                } else {
+                    coordinates = readNumbers(p);
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (type == null) {
+            return null;
+        }
+        final Geometry geometry = Geometry.create(GeometryType.valueOf(type));
+        if (coordinates instanceof PackedCoordinates) {
+            if (geometry instanceof Geometry.Polygon) {
+                ((Geometry.Polygon) geometry).setPackedCoordinates((PackedCoordinates) coordinates);
+            } else {
+                ((Geometry.MultiPolygon) geometry).setPackedCoordinates((PackedCoordinates) coordinates);
+            }
+        } else if (coordinates != null) {
+            geometry.setCoordinates(toArray(coordinates, geometry.getRank()));
+        }
+        return geometry;
+    }
+
+    /**
+     * Returns the rank of the coordinates of the given geometry type, or 0 if the type is not known
+     */
+    private static int rankOf(String type) {
+        try {
+            return Geometry.create(GeometryType.valueOf(type)).getRank();
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the coordinates of a polygon (rank 3) or of a multi-polygon (rank 4) directly into packed storage.
+     * As for the other geometries, coordinates having one more dimension than expected are reduced to their
+     * first element. Coordinates with fewer or more dimensions are skipped.
+     */
+    private static PackedCoordinates readPacked(JsonParser p, int rank) throws IOException {
+        // the depth is given by the arrays opened before the first value
+        int depth = 0;
+        JsonToken token = p.currentToken();
+        for (; token == JsonToken.START_ARRAY; token = p.nextToken()) {
+            depth++;
+        }
+        final PackedCoordinates.Builder builder = new PackedCoordinates.Builder();
+        if (depth == 1 && token == JsonToken.END_ARRAY) {
+            return builder.build();
+        }
+        final int extra = depth - rank;
+        if (extra != 0 && extra != 1) {
+            if (token == JsonToken.END_ARRAY) {
+                depth--;
+            } else {
+                p.skipChildren();
+            }
+            skipTo(p, depth - 1);
+            return null;
+        }
+        int level = depth;
+        // only the polygon element opens the (single) part
+        final int partLevel = depth - 2;
+        for (; ; token = p.nextToken()) {
+            if (token == JsonToken.START_ARRAY) {
+                if (++level > depth) {
+                    p.skipChildren();
+                    level--;
+                }
+            } else if (token == JsonToken.END_ARRAY) {
+                if (level == depth) {
+                    builder.endVertex();
+                } else if (level == depth - 1) {
+                    builder.endRing();
+                } else if (level == partLevel) {
+                    builder.endPart();
+                }
+                if (--level == extra) {
+                    break;
+                }
+            } else if (token == null) {
+                break;
+            } else if (level == depth) {
+                builder.add(toDouble(p));
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (extra == 1) {
+            skipTo(p, 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Skips the remaining values of the arrays opened below the given level (the current one is at the given
+     * level plus one)
+     */
+    private static void skipTo(JsonParser p, int remaining) throws IOException {
+        for (int level = remaining; level >= 0; ) {
+            final JsonToken token = p.nextToken();
+            if (token == null) {
+                return;
+            }
+            if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+                p.skipChildren();
+            } else if (token == JsonToken.END_ARRAY) {
+                level--;
+            }
+        }
+    }
+
+    /**
+     * Returns the extension (registered with the target) that handles the given field, if any
+     */
+    private Extension<?> extensionFor(Extensible target, String name, Set<ExtensionType> extensionTypes) {
+        final ExtensionType type = ExtensionType.forField(name);
+        return type != null && extensionTypes.contains(type) ? target.getExtension(type) : null;
+    }
+
+    private void setUnknownField(JsonParser p, String name, Extensible target, ParseProfile profile) throws IOException {
+        final JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            switch (p.getNumberType()) {
                 case INT:
-                    target.addField(name, JsonValueHelper.getInt(parent, name));
+                    target.addField(name, p.getIntValue());
                     break;
                 case LONG:
-                    target.addField(name, JsonValueHelper.getLong(parent, name));
-                    break;
-                case FLOAT:
-                case DOUBLE:
-                    target.addField(name, JsonValueHelper.getDouble(parent, name));
+                    target.addField(name, p.getLongValue());
                     break;
             }
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            // buffered tokens may report floating point numbers as BigDecimal
+            target.addField(name, p.getDoubleValue());
         } else {
-            target.addField(name, JsonValueHelper.tryGuessTypedValue(node));
+            final Object value = JsonValueHelper.tryGuessTypedValue(stringValue(p));
+            target.addField(name, value instanceof String && profile != null
+                                  ? canonical(profile.getCanonicalizer(), (String) value) : value);
+        }
+    }
+
+    private static String canonical(StringCanonicalizer strings, String value) {
+        return strings != null ? strings.canonicalize(value) : value;
+    }
+
+    /**
+     * Replaces the repeated strings of a link (all but the target of <code>self</code> links) by their canonical instances
+     */
+    static Link canonical(StringCanonicalizer strings, Link link) {
+        if (strings != null) {
+            link.setRel(strings.canonicalize(link.getRel()));
+            link.setType(strings.canonicalize(link.getType()));
+            link.setTitle(strings.canonicalize(link.getTitle()));
+            if (!"self".equals(link.getRel())) {
+                link.setHref(strings.canonicalize(link.getHref()));
+            }
+        }
+        return link;
+    }
+
+    /**
+     * Returns the current value as text (see {@link JsonValueHelper#readString(JsonParser)})
+     */
+    private static String stringValue(JsonParser p) throws IOException {
+        return JsonValueHelper.readString(p);
+    }
+
+    private static List<String> readStrings(JsonParser p, StringCanonicalizer strings) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        final List<String> values = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            values.add(canonical(strings, stringValue(p)));
+        }
+        return values;
+    }
+
+    /**
+     * Reads a (possibly nested) array of numbers. The innermost arrays are returned as <code>double[]</code>,
+     * the outer ones as <code>Object[]</code>, and a single number as <code>Double</code>.
+     */
+    private static Object readNumbers(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            final Object value = p.currentToken().isScalarValue() ? toDouble(p) : null;
+            p.skipChildren();
+            return value;
+        }
+        JsonToken token = p.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            final List<Object> values = new ArrayList<>();
+            for (; token != JsonToken.END_ARRAY; token = p.nextToken()) {
+                values.add(readNumbers(p));
+            }
+            return values.toArray();
+        }
+        double[] values = new double[8];
+        int count = 0;
+        for (; token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = toDouble(p);
+            p.skipChildren();
+        }
+        return values.length == count ? values : Arrays.copyOf(values, count);
+    }
+
+    private static double toDouble(JsonParser p) throws IOException {
+        return p.currentToken().isNumeric() ? p.getDoubleValue() : Double.parseDouble(stringValue(p));
+    }
+
+    /**
+     * Converts the numbers read by {@link #readNumbers(JsonParser)} to an array of the given rank.
+     * As before, a value having one more dimension than expected is reduced to its first element.
+     */
+    private static Object toArray(Object value, int rank) {
+        if (rankOf(value) == rank + 1) {
+            value = size(value) > 0 ? ((Object[]) value)[0] : null;
+        }
+        return convert(value, rank);
+    }
+
+    private static Object convert(Object value, int rank) {
+        if (rank == 1) {
+            return value instanceof double[] ? value : new double[0];
+        }
+        final int size = size(value);
+        final Object result = Array.newInstance(arrayTypes[rank - 1], size);
+        for (int i = 0; i < size; i++) {
+            Array.set(result, i, convert(value instanceof Object[] ? ((Object[]) value)[i] : null, rank - 1));
+        }
+        return result;
+    }
+
+    private static int rankOf(Object value) {
+        if (value instanceof double[]) {
+            return 1;
+        }
+        if (value instanceof Object[]) {
+            final Object[] values = (Object[]) value;
+            return 1 + (values.length > 0 ? rankOf(values[0]) : 0);
+        }
+        return 0;
+    }
+
+    private static int size(Object value) {
+        if (value instanceof double[]) {
+            return ((double[]) value).length;
         }
+        return value instanceof Object[] ? ((Object[]) value).length : 0;
     }
 }
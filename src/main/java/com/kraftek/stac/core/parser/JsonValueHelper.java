@@ -1,11 +1,16 @@
 package com.kraftek.stac.core.parser;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.TreeNode;
-import ro.cs.tao.utils.DateUtils;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -16,8 +21,8 @@ import java.util.regex.Pattern;
  * @author Cosmin Cara
  */
 public class JsonValueHelper {
-    private static final DateTimeFormatter format = DateUtils.getResilientFormatterAtUTC();
     private static final Pattern datePattern = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+    private static final JsonFactory jsonFactory = new JsonFactory();
 
     /**
      * Returns the JSON node value as string
@@ -218,7 +223,7 @@ public class JsonValueHelper {
         if (valueNode != null) {
             String val = getStringValue(valueNode);
             if (val != null) {
-                value = LocalDateTime.parse(val, format);
+                value = DateTimeParser.parseDateTime(val);
             }
         }
         return value;
@@ -237,7 +242,7 @@ public class JsonValueHelper {
         for (int i = 0; i < valueNode.size(); i++) {
             String value = getStringValue(valueNode.get(i));
             if (value != null) {
-                dateTimes[i] = LocalDateTime.parse(value, format);
+                dateTimes[i] = DateTimeParser.parseDateTime(value);
             }
         }
         return dateTimes;
@@ -249,19 +254,125 @@ public class JsonValueHelper {
      * @param node  The JSON node
      */
     public static Object tryGuessTypedValue(TreeNode node) {
-        final String value = getStringValue(node);
-        if (value == null) {
+        return tryGuessTypedValue(getStringValue(node));
+    }
+    /**
+     * Tries to "guess" the typed value of a string.
+     * It resolves only dates and dates/times to their actual Java type.
+     * For other type of values, it returns the string itself.
+     * @param value  The string value
+     */
+    public static Object tryGuessTypedValue(String value) {
+        if (value == null || value.length() < 10) {
             return value;
         }
-        if (datePattern.matcher(value).find() && value.length() == 10) {
-            return LocalDate.parse(value, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-        } else if (datePattern.matcher(value).find()) {
-            return LocalDateTime.parse(value, DateUtils.getResilientFormatterAtUTC());
-        } else {
+        if (value.length() >= 19) {
+            final LocalDateTime dateTime = DateTimeParser.tryParseDateTime(value);
+            if (dateTime != null) {
+                return dateTime;
+            }
+        }
+        if (!datePattern.matcher(value).find()) {
+            return value;
+        }
+        try {
+            return value.length() == 10 ? DateTimeParser.parseDate(value) : DateTimeParser.parseDateTime(value);
+        } catch (DateTimeParseException e) {
+            // text containing a date, but not a date
             return value;
         }
     }
 
+    /**
+     * Returns the current value of the parser as string, the same way {@link #getStringValue(TreeNode)} does for a node
+     * (quotes removed, and <code>null</code> for JSON nulls).
+     * @param parser    The JSON parser
+     */
+    public static String readString(JsonParser parser) throws IOException {
+        final String value;
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                value = parser.getText();
+                break;
+            case VALUE_NUMBER_FLOAT:
+                value = Double.toString(parser.getDoubleValue());
+                break;
+            case START_OBJECT:
+            case START_ARRAY:
+                value = toJson(parser);
+                break;
+            default:
+                value = parser.getText();
+                break;
+        }
+        final String val = value.indexOf('"') >= 0 ? value.replace("\"", "") : value;
+        return "null".equals(val) ? null : val;
+    }
+    /**
+     * Returns the current value of the parser as a nullable integer
+     * @param parser    The JSON parser
+     */
+    public static Integer readInt(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        final String value = readString(parser);
+        return value != null ? Integer.parseInt(value) : null;
+    }
+    /**
+     * Returns the current value of the parser as a nullable double
+     * @param parser    The JSON parser
+     */
+    public static Double readDouble(JsonParser parser) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        final String value = readString(parser);
+        return value != null ? Double.parseDouble(value) : null;
+    }
+    /**
+     * Returns the current value of the parser as a 1-dimensional array of doubles.
+     * As for {@link #getDoubleArray1(TreeNode, String)}, a 2-dimensional array is reduced to its first element.
+     * @param parser    The JSON parser
+     */
+    public static double[] readDoubleArray1(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return new double[0];
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            final double[] values = readDoubleArray1(parser);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+            return values;
+        }
+        double[] values = new double[8];
+        int count = 0;
+        for (; token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = readDouble(parser);
+            parser.skipChildren();
+        }
+        return values.length == count ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Writes the current value of the parser (and its children) as compact JSON
+     */
+    static String toJson(JsonParser parser) throws IOException {
+        final StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+
     /**
      * Returns the rank (number of dimensions) of the array representing the value of the given node.
      * If the value is not an array, it returns 0.
@@ -0,0 +1,230 @@
+package com.kraftek.stac.core.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.kraftek.stac.core.model.Asset;
+import com.kraftek.stac.core.model.Geometry;
+import com.kraftek.stac.core.model.Link;
+import com.kraftek.stac.core.model.Item;
+import com.kraftek.stac.core.model.extensions.Extension;
+import com.kraftek.stac.core.model.extensions.ExtensionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Item whose geometry, links, assets and properties are kept as raw JSON and decoded when first accessed.
+ * Until then, each section costs only the bytes of its JSON text.
+ * I/O errors occurring when a section is decoded are reported as {@link UncheckedIOException}.
+ *
+ * @author Cosmin Cara
+ */
+final class LazyItem extends Item {
+    static final int GEOMETRY = 0;
+    static final int LINKS = 1;
+    static final int PROPERTIES = 2;
+    static final int ASSETS = 3;
+    private final ItemDeserializer deserializer;
+    private final ObjectCodec codec;
+    private Source source;
+    private final byte[][] sections;
+    private Set<ExtensionType> extensionTypes;
+    private ParseProfile profile;
+    private volatile int pending;
+
+    LazyItem(ItemDeserializer deserializer, ObjectCodec codec, Source source) {
+        this.deserializer = deserializer;
+        this.codec = codec;
+        this.source = source;
+        this.sections = new byte[4][];
+    }
+
+    /**
+     * Keeps the raw JSON of the current value (an object or an array) of the parser, for decoding it later.
+     * Returns <code>false</code> if the value cannot be deferred (in which case the parser did not advance).
+     */
+    boolean defer(int section, JsonParser p) throws IOException {
+        final JsonToken token = p.currentToken();
+        if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+            return false;
+        }
+        final long start = p.currentTokenLocation().getByteOffset();
+        if (start < 0) {
+            return false;
+        }
+        p.skipChildren();
+        final long end = p.currentLocation().getByteOffset();
+        final int offset = this.source.offset;
+        this.sections[section] = Arrays.copyOfRange(this.source.bytes, offset + (int) start, offset + (int) end);
+        return true;
+    }
+
+    /**
+     * Enables the decoding of the deferred sections, once the item was parsed
+     */
+    void seal(Set<ExtensionType> extensionTypes, ParseProfile profile) {
+        this.extensionTypes = extensionTypes;
+        this.profile = profile;
+        // the deferred sections were copied, the page needs not be retained
+        this.source = null;
+        int mask = 0;
+        for (int section = 0; section < this.sections.length; section++) {
+            if (this.sections[section] != null) {
+                mask |= 1 << section;
+            }
+        }
+        this.pending = mask;
+    }
+
+    @Override
+    public Geometry getGeometry() {
+        ensure(GEOMETRY);
+        return super.getGeometry();
+    }
+
+    @Override
+    public void setGeometry(Geometry geometry) {
+        ensure(GEOMETRY);
+        super.setGeometry(geometry);
+    }
+
+    @Override
+    public List<Link> getLinks() {
+        ensure(LINKS);
+        return super.getLinks();
+    }
+
+    @Override
+    public void setLinks(List<Link> links) {
+        ensure(LINKS);
+        super.setLinks(links);
+    }
+
+    @Override
+    public void addLink(Link link) {
+        ensure(LINKS);
+        super.addLink(link);
+    }
+
+    @Override
+    public Map<String, Asset> getAssets() {
+        ensure(ASSETS);
+        return super.getAssets();
+    }
+
+    @Override
+    public void setAssets(Map<String, Asset> assets) {
+        ensure(ASSETS);
+        super.setAssets(assets);
+    }
+
+    @Override
+    public void addAsset(String name, Asset asset) {
+        ensure(ASSETS);
+        super.addAsset(name, asset);
+    }
+
+    @Override
+    public Map<String, Object> getFields() {
+        ensure(PROPERTIES);
+        return super.getFields();
+    }
+
+    @Override
+    public void setFields(Map<String, Object> fields) {
+        ensure(PROPERTIES);
+        super.setFields(fields);
+    }
+
+    @Override
+    public <T> T getField(String name) {
+        ensure(PROPERTIES);
+        return super.getField(name);
+    }
+
+    @Override
+    public void addField(String name, Object value) {
+        ensure(PROPERTIES);
+        super.addField(name, value);
+    }
+
+    @Override
+    public Map<ExtensionType, Extension<?>> getExtensions() {
+        ensure(PROPERTIES);
+        return super.getExtensions();
+    }
+
+    @Override
+    public Extension<?> registerExtension(ExtensionType type) {
+        ensure(PROPERTIES);
+        return super.registerExtension(type);
+    }
+
+    @Override
+    public <T extends Extension<?>> T getExtension(ExtensionType extensionType) {
+        ensure(PROPERTIES);
+        return super.getExtension(extensionType);
+    }
+
+    private void ensure(int section) {
+        if ((this.pending & (1 << section)) != 0) {
+            decode(section);
+        }
+    }
+
+    private synchronized void decode(int section) {
+        final byte[] raw = this.sections[section];
+        if (raw == null) {
+            // already decoded, or being decoded by this thread (the decoding calls the overridden setters)
+            return;
+        }
+        this.sections[section] = null;
+        try (JsonParser p = this.codec.getFactory().createParser(raw)) {
+            p.nextToken();
+            switch (section) {
+                case GEOMETRY:
+                    super.setGeometry(this.deserializer.readGeometry(p));
+                    break;
+                case LINKS:
+                    if (p.currentToken() == JsonToken.START_ARRAY) {
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            super.addLink(p.currentToken() == JsonToken.VALUE_NULL
+                                          ? null : ItemDeserializer.canonical(this.profile.getCanonicalizer(),
+                                                                              this.codec.readValue(p, Link.class)));
+                        }
+                    }
+                    break;
+                case PROPERTIES:
+                    this.deserializer.readProperties(p, this, this.extensionTypes, this.profile);
+                    break;
+                case ASSETS:
+                    this.deserializer.readAssets(p, this, this.extensionTypes, this.profile);
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // the other threads see the section only once it is fully decoded
+            this.pending &= ~(1 << section);
+        }
+    }
+
+    /**
+     * The bytes being parsed, set as attribute of the reader (keyed by this class).
+     * The parser locations are relative to the given offset.
+     */
+    static final class Source {
+        final byte[] bytes;
+        final int offset;
+
+        Source(byte[] bytes, int offset) {
+            this.bytes = bytes;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.kraftek.stac.core.parser;
+
+import com.kraftek.stac.core.model.extensions.ExtensionType;
+
+import java.util.Set;
+
+/**
+ * Declares the parts of the items to be kept when parsing. The other parts are skipped at the token level,
+ * without being converted to objects.
+ * A <code>null</code> set (the default) keeps everything of its kind. The <code>properties</code> and
+ * <code>assets</code> sections are kept if they are among the fields, or if a filter is set for their content.
+ * For example, to keep only the identifier, the footprint box, the acquisition date, the cloud cover and one asset:
+ * <pre>
+ *     ParseProfile profile = new ParseProfile();
+ *     profile.setFields(Set.of("id", "bbox"));
+ *     profile.setProperties(Set.of("datetime", "eo:cloud_cover"));
+ *     profile.setAssets(Set.of("B04"));
+ *     profile.setExtensions(Set.of(ExtensionType.EO));
+ * </pre>
+ *
+ * @author Cosmin Cara
+ */
+public class ParseProfile {
+    private Set<String> fields;
+    private Set<String> properties;
+    private Set<String> assets;
+    private Set<ExtensionType> extensions;
+    private boolean lazy;
+    private StringCanonicalizer canonicalizer;
+
+    public ParseProfile() {
+        super();
+    }
+
+    /**
+     * The top-level fields of the items to be kept (such as <code>id</code>, <code>bbox</code>, <code>geometry</code>,
+     * <code>links</code>)
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * The properties to be kept (such as <code>datetime</code>, <code>eo:cloud_cover</code>)
+     */
+    public Set<String> getProperties() {
+        return properties;
+    }
+
+    public void setProperties(Set<String> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * The keys of the assets to be kept
+     */
+    public Set<String> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(Set<String> assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * The extensions to be registered with the items and assets. The fields of the other known extensions are skipped.
+     */
+    public Set<ExtensionType> getExtensions() {
+        return extensions;
+    }
+
+    public void setExtensions(Set<ExtensionType> extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * If set, the geometry, links, assets and properties of the items are kept as raw JSON and decoded only when
+     * first accessed. This applies only when parsing from a byte array.
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * The table of canonical strings used for the repeated string values of the items (media types, roles, link
+     * relations, common property values). By default, none is used.
+     * The property names and asset keys need none, since the parser already shares the instances of field names.
+     */
+    public StringCanonicalizer getCanonicalizer() {
+        return canonicalizer;
+    }
+
+    public void setCanonicalizer(StringCanonicalizer canonicalizer) {
+        this.canonicalizer = canonicalizer;
+    }
+
+    boolean keepsField(String name) {
+        if (this.fields == null || this.fields.contains(name)) {
+            return true;
+        }
+        switch (name) {
+            case "properties":
+                return this.properties != null;
+            case "assets":
+                return this.assets != null;
+            default:
+                return false;
+        }
+    }
+
+    boolean keepsProperty(String name) {
+        return (this.properties == null || this.properties.contains(name)) && keepsExtensionField(name);
+    }
+
+    boolean keepsAsset(String key) {
+        return this.assets == null || this.assets.contains(key);
+    }
+
+    boolean keepsExtension(ExtensionType type) {
+        return this.extensions == null || this.extensions.contains(type);
+    }
+
+    /**
+     * Tells if the field does not belong to a known extension that is not kept
+     */
+    boolean keepsExtensionField(String name) {
+        if (this.extensions == null) {
+            return true;
+        }
+        final ExtensionType type = ExtensionType.forField(name);
+        return type == null || this.extensions.contains(type);
+    }
+}
@@ -3,23 +3,33 @@ package com.kraftek.stac.core.parser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.kraftek.stac.core.model.*;
 import com.kraftek.stac.core.model.extensions.eo.Band;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.stream.Collectors;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Parser for JSON nodes representing STAC objects.
+ * The stream overloads feed the bytes directly to Jackson (which detects the UTF encoding), without
+ * materializing the whole document as a string first.
  *
  * @author Cosmin Cara
  */
 public class STACParser {
     private static final ObjectMapper mapper;
+    private static final int MIN_FEATURES_PER_CHUNK = 4;
 
     static {
         mapper = new ObjectMapper();
@@ -44,10 +54,8 @@ public class STACParser {
      * Resolves the JSON content to a Catalog object
      * @param stream   The input stream
      */
-    public Catalog parseCatalogResponse(InputStream stream) throws JsonProcessingException {
-        return mapper.readValue(new BufferedReader(new InputStreamReader(stream))
-                                        .lines().collect(Collectors.joining("\n")),
-                                Catalog.class);
+    public Catalog parseCatalogResponse(InputStream stream) throws IOException {
+        return mapper.readValue(stream, Catalog.class);
     }
     /**
      * Resolves the JSON content to a CollectionList object
@@ -60,10 +68,8 @@ public class STACParser {
      * Resolves the JSON content to a CollectionList object
      * @param stream   The input stream
      */
-    public CollectionList parseCollectionsResponse(InputStream stream) throws JsonProcessingException {
-        return mapper.readValue(new BufferedReader(new InputStreamReader(stream))
-                                        .lines().collect(Collectors.joining("\n")),
-                                CollectionList.class);
+    public CollectionList parseCollectionsResponse(InputStream stream) throws IOException {
+        return mapper.readValue(stream, CollectionList.class);
     }
     /**
      * Resolves the JSON content to a Collection object
@@ -76,10 +82,8 @@ public class STACParser {
      * Resolves the JSON content to a Collection object
      * @param stream   The input stream
      */
-    public Collection parseCollectionResponse(InputStream stream) throws JsonProcessingException {
-        return mapper.readValue(new BufferedReader(new InputStreamReader(stream))
-                                        .lines().collect(Collectors.joining("\n")),
-                                Collection.class);
+    public Collection parseCollectionResponse(InputStream stream) throws IOException {
+        return mapper.readValue(stream, Collection.class);
     }
     /**
      * Resolves the JSON content to an ItemCollection object
@@ -93,10 +97,111 @@ public class STACParser {
      * Resolves the JSON content to an ItemCollection object
      * @param stream   The input stream
      */
-    public ItemCollection parseItemCollectionResponse(InputStream stream) throws JsonProcessingException {
-        return mapper.readValue(new BufferedReader(new InputStreamReader(stream))
-                                        .lines().collect(Collectors.joining("\n")),
-                                ItemCollection.class);
+    public ItemCollection parseItemCollectionResponse(InputStream stream) throws IOException {
+        return mapper.readValue(stream, ItemCollection.class);
+    }
+    /**
+     * Resolves the JSON content to an ItemCollection object, keeping only the parts of the items declared by the profile
+     * @param stream    The input stream
+     * @param profile   The parts of the items to keep
+     */
+    public ItemCollection parseItemCollectionResponse(InputStream stream, ParseProfile profile) throws IOException {
+        return mapper.readerFor(ItemCollection.class).withAttribute(ParseProfile.class, profile).readValue(stream);
+    }
+    /**
+     * Resolves the JSON content to an ItemCollection object, keeping only the parts of the items declared by the profile.
+     * If the profile is lazy, the items decode their geometry, links, properties and assets when first accessed.
+     * @param content   The JSON content
+     * @param profile   The parts of the items to keep
+     */
+    public ItemCollection parseItemCollectionResponse(byte[] content, ParseProfile profile) throws IOException {
+        return mapper.readerFor(ItemCollection.class)
+                     .withAttribute(ParseProfile.class, profile)
+                     .withAttribute(LazyItem.Source.class, new LazyItem.Source(content, 0))
+                     .readValue(content);
+    }
+    /**
+     * Resolves the JSON content to an ItemCollection object, parsing the features in parallel on the given pool.
+     * The features keep the order of the document.
+     * @param content   The JSON content (UTF-8)
+     * @param pool      The pool on which the features are parsed
+     */
+    public ItemCollection parseItemCollectionResponse(byte[] content, ForkJoinPool pool) throws IOException {
+        return parseItemCollectionResponse(content, null, pool);
+    }
+    /**
+     * Resolves the JSON content to an ItemCollection object, keeping only the parts of the items declared by the profile
+     * and parsing the features in parallel on the given pool. The features keep the order of the document.
+     * @param content   The JSON content (UTF-8)
+     * @param profile   The parts of the items to keep
+     * @param pool      The pool on which the features are parsed
+     */
+    public ItemCollection parseItemCollectionResponse(byte[] content, ParseProfile profile, ForkJoinPool pool) throws IOException {
+        final FeatureSplitter splitter = FeatureSplitter.scan(content);
+        final int count = splitter != null ? splitter.getCount() : 0;
+        final int chunks = Math.min(count / MIN_FEATURES_PER_CHUNK, pool.getParallelism() * 4);
+        if (chunks < 2) {
+            return parseItemCollectionResponse(content, profile);
+        }
+        // the members other than the features are parsed from a copy having an empty features array
+        final ItemCollection itemCollection = mapper.readerFor(ItemCollection.class)
+                                                    .withAttribute(ParseProfile.class, profile)
+                                                    .readValue(splitter.withoutFeatures());
+        final ObjectReader itemReader = mapper.readerFor(Item.class).withAttribute(ParseProfile.class, profile);
+        final boolean lazy = profile != null && profile.isLazy();
+        final List<Callable<Item[]>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int first = (int) ((long) count * chunk / chunks);
+            final int last = (int) ((long) count * (chunk + 1) / chunks);
+            tasks.add(() -> {
+                final Item[] items = new Item[last - first];
+                for (int i = first; i < last; i++) {
+                    final int start = splitter.getStart(i);
+                    final ObjectReader reader = lazy
+                            ? itemReader.withAttribute(LazyItem.Source.class, new LazyItem.Source(content, start))
+                            : itemReader;
+                    items[i - first] = reader.readValue(content, start, splitter.getLength(i));
+                }
+                return items;
+            });
+        }
+        final List<Item> features = new ArrayList<>(count);
+        for (Future<Item[]> result : pool.invokeAll(tasks)) {
+            try {
+                features.addAll(Arrays.asList(result.get()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while parsing features");
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+        itemCollection.setFeatures(features);
+        return itemCollection;
+    }
+    /**
+     * Opens a reader that returns the items of an ItemCollection one at a time, as they are parsed.
+     * The reader must be closed, which also closes the stream.
+     * @param stream   The input stream
+     */
+    public ItemCollectionReader readItemCollectionResponse(InputStream stream) throws IOException {
+        return new ItemCollectionReader(mapper, mapper.createParser(stream));
+    }
+    /**
+     * Opens a reader that returns the items of an ItemCollection one at a time, keeping only the parts of the items
+     * declared by the profile. The reader must be closed, which also closes the stream.
+     * @param stream    The input stream
+     * @param profile   The parts of the items to keep
+     */
+    public ItemCollectionReader readItemCollectionResponse(InputStream stream, ParseProfile profile) throws IOException {
+        return new ItemCollectionReader(mapper, mapper.createParser(stream), profile);
     }
     /**
      * Resolves the JSON content to an Item object
@@ -109,10 +214,28 @@ public class STACParser {
      * Resolves the JSON content to an Item object
      * @param stream   The input stream
      */
-    public Item parseItemResponse(InputStream stream) throws JsonProcessingException {
-        return mapper.readValue(new BufferedReader(new InputStreamReader(stream))
-                                        .lines().collect(Collectors.joining("\n")),
-                                Item.class);
+    public Item parseItemResponse(InputStream stream) throws IOException {
+        return mapper.readValue(stream, Item.class);
+    }
+    /**
+     * Resolves the JSON content to an Item object, keeping only the parts declared by the profile
+     * @param stream    The input stream
+     * @param profile   The parts of the item to keep
+     */
+    public Item parseItemResponse(InputStream stream, ParseProfile profile) throws IOException {
+        return mapper.readerFor(Item.class).withAttribute(ParseProfile.class, profile).readValue(stream);
+    }
+    /**
+     * Resolves the JSON content to an Item object, keeping only the parts declared by the profile.
+     * If the profile is lazy, the item decodes its geometry, links, properties and assets when first accessed.
+     * @param content   The JSON content
+     * @param profile   The parts of the item to keep
+     */
+    public Item parseItemResponse(byte[] content, ParseProfile profile) throws IOException {
+        return mapper.readerFor(Item.class)
+                     .withAttribute(ParseProfile.class, profile)
+                     .withAttribute(LazyItem.Source.class, new LazyItem.Source(content, 0))
+                     .readValue(content);
     }
     /**
      * Resolves the JSON content to a Link object
@@ -0,0 +1,119 @@
+package com.kraftek.stac.core.parser;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Table of canonical instances of strings, so that the values repeated across many items (media types, roles,
+ * link relations, common property values) are retained only once.
+ * A value is admitted into the table only when it is met for the second time, so that the values met once (titles,
+ * identifiers, targets of links) do not take the place of the repeated ones. The values met once are remembered
+ * in a set of candidates of the same bound as the table, that is emptied when full.
+ * The table is bounded: once it is full, the new values are returned as they are, while the values already in the
+ * table are still shared. Values longer than a given length are never canonicalized. The table can be used by
+ * several threads.
+ *
+ * @author Cosmin Cara
+ */
+public class StringCanonicalizer {
+    private final Map<String, String> table;
+    private final Set<String> candidates;
+    private final int maxEntries;
+    private final int maxLength;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Creates a table of at most 16384 strings, of at most 256 characters each.
+     */
+    public StringCanonicalizer() {
+        this(16384, 256);
+    }
+
+    /**
+     * Creates a table of canonical strings.
+     * @param maxEntries    The maximum number of strings in the table
+     * @param maxLength     The maximum length of the strings to be canonicalized
+     */
+    public StringCanonicalizer(int maxEntries, int maxLength) {
+        if (maxEntries <= 0 || maxLength <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxLength must be positive");
+        }
+        this.table = new ConcurrentHashMap<>();
+        this.candidates = ConcurrentHashMap.newKeySet();
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Returns the canonical instance of the given string (which is the string itself, if it was not admitted yet)
+     * @param value The string
+     */
+    public String canonicalize(String value) {
+        if (value == null || value.length() > this.maxLength) {
+            return value;
+        }
+        final String canonical = this.table.get(value);
+        if (canonical != null) {
+            this.hits.increment();
+            return canonical;
+        }
+        this.misses.increment();
+        if (this.table.size() >= this.maxEntries) {
+            return value;
+        }
+        if (this.candidates.add(value)) {
+            // first sighting
+            if (this.candidates.size() > this.maxEntries) {
+                this.candidates.clear();
+            }
+            return value;
+        }
+        this.candidates.remove(value);
+        final String previous = this.table.putIfAbsent(value, value);
+        return previous != null ? previous : value;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * The number of strings in the table
+     */
+    public int getSize() {
+        return table.size();
+    }
+
+    /**
+     * The number of strings for which a canonical instance was found
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of strings (not longer than the maximum length) for which no canonical instance was found
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Empties the table and resets the statistics
+     */
+    public void clear() {
+        this.table.clear();
+        this.candidates.clear();
+        this.hits.reset();
+        this.misses.reset();
+    }
+}
@@ -159,4 +159,33 @@ public class DateUtils {
         }
         return intervals;
     }
+
+    /**
+     * Splits a period into intervals of equal duration. Consecutive intervals share their bounds.
+     * @param start     The start of the period
+     * @param end       The end of the period
+     * @param count     The number of intervals
+     * @return          A list of intervals
+     */
+    public static List<LocalDateTime[]> splitIntoIntervals(LocalDateTime start, LocalDateTime end, int count) {
+        if (start == null || end == null) {
+            return null;
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        final List<LocalDateTime[]> intervals = new ArrayList<>();
+        if (start.isBefore(end)) {
+            final Duration step = Duration.between(start, end).dividedBy(count);
+            LocalDateTime current = start;
+            for (int i = 0; i < count; i++) {
+                final LocalDateTime next = i == count - 1 ? end : current.plus(step);
+                if (next.isAfter(current)) {
+                    intervals.add(new LocalDateTime[] { current, next });
+                }
+                current = next;
+            }
+        }
+        return intervals;
+    }
 }
@@ -0,0 +1,56 @@
+package com.kraftek.stac;
+
+import com.kraftek.stac.core.parser.DateTimeParser;
+import ro.cs.tao.utils.DateUtils;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
+
+/**
+ * Compares the time taken to parse typical STAC date/time values by {@link DateTimeParser}
+ * and by the resilient formatter of {@link DateUtils}.
+ * Run with: <code>java com.kraftek.stac.DateTimeParserBenchmark [iterations]</code>
+ *
+ * @author Cosmin Cara
+ */
+public class DateTimeParserBenchmark {
+    private static final String[] samples = {
+            "2021-03-04T10:20:30Z",
+            "2021-03-04T10:20:30.123Z",
+            "2021-03-04T10:20:30.123456Z",
+            "2021-03-04T10:20:30.123+02:00",
+            "2021-03-04 10:20:30",
+            "2021-12-31T23:59:59.999999-05:30"
+    };
+
+    public static void main(String[] args) {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        final DateTimeFormatter formatter = DateUtils.getResilientFormatterAtUTC();
+        for (String sample : samples) {
+            if (!DateTimeParser.parseDateTime(sample).equals(LocalDateTime.parse(sample, formatter))) {
+                throw new IllegalStateException("Different results for " + sample);
+            }
+        }
+        // warm-up
+        run(iterations / 10, value -> LocalDateTime.parse(value, formatter));
+        run(iterations / 10, DateTimeParser::parseDateTime);
+        final long formatterTime = run(iterations, value -> LocalDateTime.parse(value, formatter));
+        final long parserTime = run(iterations, DateTimeParser::parseDateTime);
+        System.out.printf("Resilient formatter: %d ns/value%n", formatterTime / iterations);
+        System.out.printf("DateTimeParser:      %d ns/value%n", parserTime / iterations);
+    }
+
+    private static long run(int iterations, Function<String, LocalDateTime> parser) {
+        long checksum = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += parser.apply(samples[i % samples.length]).getNano();
+        }
+        final long elapsed = System.nanoTime() - start;
+        if (checksum == 42) {
+            System.out.println();
+        }
+        return elapsed;
+    }
+}
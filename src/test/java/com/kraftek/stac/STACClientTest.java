@@ -3,19 +3,87 @@ package com.kraftek.stac;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kraftek.stac.core.AsyncSTACClient;
+import com.kraftek.stac.core.Authentication;
+import com.kraftek.stac.core.AuthenticationType;
+import com.kraftek.stac.core.CatalogCapabilities;
+import com.kraftek.stac.core.HttpClient;
 import com.kraftek.stac.core.STACClient;
+import com.kraftek.stac.core.SearchRequest;
+import com.kraftek.stac.core.SpatialTiledSearch;
+import com.kraftek.stac.core.TemporalShardedSearch;
+import com.kraftek.stac.core.http.AdaptiveConcurrencyLimiter;
+import com.kraftek.stac.core.http.DiskResponseCache;
+import com.kraftek.stac.core.http.HedgingPolicy;
+import com.kraftek.stac.core.http.HttpResponseException;
+import com.kraftek.stac.core.http.HttpTransport;
+import com.kraftek.stac.core.http.RetryBudget;
+import com.kraftek.stac.core.http.RetryPolicy;
+import com.kraftek.stac.core.http.TransferStatistics;
+import com.kraftek.stac.core.http.TransportRequest;
+import com.kraftek.stac.core.http.TransportResponse;
 import com.kraftek.stac.core.model.*;
+import com.kraftek.stac.core.model.extensions.ExtensionType;
+import com.kraftek.stac.core.model.extensions.eo.EOExtension;
+import com.kraftek.stac.core.model.extensions.projection.ProjExtension;
+import com.kraftek.stac.core.model.extensions.view.ViewExtension;
+import com.kraftek.stac.core.parser.DateTimeParser;
+import com.kraftek.stac.core.parser.ItemCollectionReader;
+import com.kraftek.stac.core.parser.JsonValueHelper;
+import com.kraftek.stac.core.parser.ParseProfile;
 import com.kraftek.stac.core.parser.STACParser;
+import com.kraftek.stac.core.parser.StringCanonicalizer;
+import org.geotools.http.HTTPResponse;
 import org.junit.Before;
 import org.junit.Test;
+import ro.cs.tao.utils.DateUtils;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 
 public class STACClientTest {
     private STACParser parser;
@@ -53,6 +121,260 @@ public class STACClientTest {
         assert(itemCollection != null);
     }
 
+    @Test
+    public void testParseItemFields() throws IOException {
+        ItemCollection alosItems = parser.parseItemCollectionResponse(STACClientTest.class.getResourceAsStream("items_1.json"));
+        assert (alosItems.getFeatures().size() == 20 && alosItems.getNumberMatched() == 1727);
+        assert (alosItems.getContext().getMatched() == 1727 && alosItems.getLinks().size() == 4);
+        Item alos = alosItems.getFeatures().get(0);
+        assert ("007b7139-ce42-5918-932a-41a48ddc6bd8".equals(alos.getId()) && "1.0.0".equals(alos.getStac_version()));
+        assert (Arrays.equals(alos.getBbox(), new double[] { 30.0, -15.000000000000002, 35.0, -10.0 }));
+        assert ("S10E030_07.stac-item".equals(alos.getField("title")));
+        assert ("ALOS/ALOS-2".equals(alos.getField("platform")));
+        assert ("83.0 dB".equals(alos.getField("cf")));
+        assert ("S10E030".equals(alos.getField("odc:region_code")));
+        assert ("GeoTIFF".equals(alos.getField("odc:file_format")));
+        assert (LocalDate.of(2006, 1, 24).equals(alos.getField("launchdate")));
+        assert (LocalDateTime.of(2007, 1, 1, 0, 0).equals(alos.getField("start_datetime")));
+        assert (LocalDateTime.of(2007, 12, 31, 23, 59, 59).equals(alos.getField("end_datetime")));
+        assert (alos.getFields().containsKey("datetime") && alos.getDatetime() == null);
+        assert (alos.getExtensions().keySet().equals(Set.of(ExtensionType.EO, ExtensionType.PROJ)));
+        final double[] alosTransform = { 0.00022222222222222231, 0.0, 30.0, 0.0, -0.00022222222222222231, -10.0, 0.0, 0.0, 1.0 };
+        ProjExtension<?> alosProjection = alos.getExtension(ExtensionType.PROJ);
+        assert (alosProjection.getEpsg() == 4326);
+        assert (Arrays.equals(alosProjection.getShape(), new double[] { 22500, 22500 }));
+        assert (Arrays.equals(alosProjection.getTransform(), alosTransform));
+        assert (alos.getGeometry().getType() == GeometryType.Polygon);
+        assert (Arrays.deepEquals((double[][][]) alos.getGeometry().getCoordinates(),
+                                  new double[][][] { { { 30.0, -10.0 }, { 30.0, -15.000000000000002 }, { 35.0, -15.000000000000002 },
+                                                       { 35.0, -10.0 }, { 30.0, -10.0 } } }));
+        assert (alos.getAssets().keySet().equals(Set.of("date", "hh", "hv", "linci", "mask")));
+        Asset hh = alos.getAssets().get("hh");
+        assert ("s3://deafrica-input-datasets/alos_palsar_mosaic/2007/S10E030/S10E030_07_sl_HH.tif".equals(hh.getHref()));
+        assert ("image/tiff; application=geotiff; profile=cloud-optimized".equals(hh.getType()));
+        assert ("hh".equals(hh.getTitle()) && List.of("data").equals(hh.getRoles()));
+        EOExtension<?> hhBands = hh.getExtension(ExtensionType.EO);
+        assert (hhBands.getBands().size() == 1 && "hh".equals(hhBands.getBands().get(0).getName()));
+        ProjExtension<?> hhProjection = hh.getExtension(ExtensionType.PROJ);
+        assert (hhProjection.getEpsg() == 4326 && Arrays.equals(hhProjection.getTransform(), alosTransform));
+        assert (alos.getLinks().stream().map(Link::getRel).collect(Collectors.toList())
+                    .equals(List.of("self", "odc_yaml", "collection", "product_overview", "alternative")));
+        assert ("https://explorer.digitalearth.africa/stac/collections/alos_palsar_mosaic/items/007b7139-ce42-5918-932a-41a48ddc6bd8"
+                .equals(alos.getLinks().get(0).getHref()));
+        assert ("1b218ec5-e4a7-5b97-aa5b-c03ebafcab12".equals(alosItems.getFeatures().get(19).getId()));
+
+        ItemCollection sentinelItems = parser.parseItemCollectionResponse(STACClientTest.class.getResourceAsStream("items_2.json"));
+        assert (sentinelItems.getFeatures().size() == 20 && sentinelItems.getNumberMatched() == 2532760);
+        Item sentinel = sentinelItems.getFeatures().get(0);
+        assert ("03849d7a-8716-53c7-967d-e8f43e75780a".equals(sentinel.getId()));
+        assert (Arrays.equals(sentinel.getBbox(),
+                              new double[] { 11.27237582488937, 37.80686636747335, 12.566440855049235, 38.82627247685841 }));
+        assert (LocalDateTime.of(2016, 11, 2, 10, 1, 49).equals(sentinel.getDatetime()));
+        assert (LocalDateTime.of(2016, 11, 2, 10, 1, 49).equals(sentinel.getField("created")));
+        assert ("S2A_MSIL2A_20161102T100152_N0001_R122_T32SQH_20190504T202949".equals(sentinel.getField("title")));
+        assert ("sentinel-2a".equals(sentinel.getField("platform")));
+        assert ("sentinel-2".equals(sentinel.getField("constellation")));
+        assert (Integer.valueOf(10).equals(sentinel.getField("gsd")));
+        assert (Integer.valueOf(32).equals(sentinel.getField("sentinel:utm_zone")));
+        assert (Double.valueOf(100.0).equals(sentinel.getField("sentinel:data_coverage")));
+        assert ("QH".equals(sentinel.getField("sentinel:grid_square")));
+        assert ("0".equals(sentinel.getField("sentinel:sequence")));
+        assert (sentinel.getExtensions().keySet().equals(Set.of(ExtensionType.EO, ExtensionType.PROJ, ExtensionType.VIEW)));
+        EOExtension<?> sentinelEO = sentinel.getExtension(ExtensionType.EO);
+        assert (sentinelEO.getCloud_cover() == 0.03);
+        ViewExtension<?> sentinelView = sentinel.getExtension(ExtensionType.VIEW);
+        assert (sentinelView.getOff_nadir() == 0.0);
+        ProjExtension<?> sentinelProjection = sentinel.getExtension(ExtensionType.PROJ);
+        assert (sentinelProjection.getEpsg() == 32632);
+        assert (Arrays.equals(sentinelProjection.getShape(), new double[] { 10980, 10980 }));
+        assert (Arrays.equals(sentinelProjection.getTransform(),
+                              new double[] { 10.0, 0.0, 699960.0, 0.0, -10.0, 4300020.0, 0.0, 0.0, 1.0 }));
+        assert (Arrays.deepEquals((double[][][]) sentinel.getGeometry().getCoordinates(),
+                                  new double[][][] { { { 12.518351328684606, 37.80686636747335 }, { 11.27237582488937, 37.837520972097195 },
+                                                       { 11.303481623796442, 38.82627247685841 }, { 12.566440855049235, 38.79451859668191 },
+                                                       { 12.518351328684606, 37.80686636747335 } } }));
+        assert (sentinel.getAssets().size() == 20);
+        Asset red = sentinel.getAssets().get("B04");
+        assert ("s3://deafrica-sentinel-2/sentinel-s2-l2a-cogs/32/S/QH/2016/11/S2A_32SQH_20161102_0_L2A/B04.tif".equals(red.getHref()));
+        assert ("B04".equals(red.getTitle()) && List.of("data").equals(red.getRoles()));
+        EOExtension<?> redBands = red.getExtension(ExtensionType.EO);
+        assert (redBands.getBands().size() == 1 && "B04".equals(redBands.getBands().get(0).getName()));
+        ProjExtension<?> redProjection = red.getExtension(ExtensionType.PROJ);
+        assert (redProjection.getEpsg() == 32632 && Arrays.equals(redProjection.getShape(), new double[] { 10980, 10980 }));
+        Asset thumbnail = sentinel.getAssets().get("thumbnail");
+        assert ("https://roda.sentinel-hub.com/sentinel-s2-l1c/tiles/32/S/QH/2016/11/2/0/preview.jpg".equals(thumbnail.getHref()));
+        assert ("image/jpeg".equals(thumbnail.getType()) && "Thumbnail image".equals(thumbnail.getTitle()));
+        assert (List.of("thumbnail").equals(thumbnail.getRoles()));
+        assert ("716f3951-216e-51e6-816c-e89871ea27bc".equals(sentinelItems.getFeatures().get(19).getId()));
+    }
+
+    @Test
+    public void testGeometryCoordinates() throws IOException {
+        double[][][] polygon = { { { 0, 0 }, { 10, 0 }, { 10, 10 }, { 0, 10 }, { 0, 0 } },
+                                 { { 2, 2 }, { 4, 2 }, { 4, 4 }, { 2, 2 } } };
+        double[][][][] multiPolygon = { { { { 0, 0, 1 }, { 4, 0, 1 }, { 4, 4, 1 }, { 0, 0, 1 } },
+                                          { { 1, 1, 1 }, { 2, 1, 1 }, { 2, 2, 1 }, { 1, 1, 1 } } },
+                                        { { { 10, 10, 2 }, { 11, 10, 2 }, { 11, 11, 2 }, { 10, 10, 2 } } } };
+        double[][][] multiLineString = { { { 1, 2 }, { 3, 4 } }, { { 5, 6, 7 }, { 8, 9, 10 } } };
+        // the order of the members does not matter
+        for (boolean typeFirst : new boolean[] { true, false }) {
+            Geometry<?> parsedPolygon = parseGeometry("Polygon", mapper.writeValueAsString(polygon), typeFirst);
+            assert (parsedPolygon instanceof Geometry.Polygon);
+            assert (Arrays.deepEquals((double[][][]) parsedPolygon.getCoordinates(), polygon));
+            Geometry<?> parsedMultiPolygon = parseGeometry("MultiPolygon", mapper.writeValueAsString(multiPolygon), typeFirst);
+            assert (parsedMultiPolygon instanceof Geometry.MultiPolygon);
+            assert (Arrays.deepEquals((double[][][][]) parsedMultiPolygon.getCoordinates(), multiPolygon));
+            Geometry<?> parsedLines = parseGeometry("MultiLineString", mapper.writeValueAsString(multiLineString), typeFirst);
+            assert (parsedLines instanceof Geometry.MultiLineString);
+            assert (Arrays.deepEquals((double[][][]) parsedLines.getCoordinates(), multiLineString));
+            assert (((double[][][]) parseGeometry("Polygon", "[]", typeFirst).getCoordinates()).length == 0);
+            assert (((double[][][][]) parseGeometry("MultiPolygon", "[]", typeFirst).getCoordinates()).length == 0);
+        }
+        Geometry.Polygon packedPolygon = new Geometry.Polygon();
+        packedPolygon.setCoordinates(polygon);
+        assert (Arrays.deepEquals(packedPolygon.getCoordinates(), polygon));
+        assert (packedPolygon.getPackedCoordinates().getRingCount() == 2);
+        packedPolygon.setCoordinates(new double[0][][]);
+        assert (packedPolygon.getCoordinates().length == 0);
+        Geometry.MultiPolygon packedMultiPolygon = new Geometry.MultiPolygon();
+        packedMultiPolygon.setCoordinates(multiPolygon);
+        assert (Arrays.deepEquals(packedMultiPolygon.getCoordinates(), multiPolygon));
+        assert (packedMultiPolygon.getPackedCoordinates().getPartCount() == 2);
+        assert (packedMultiPolygon.getPackedCoordinates().getDimension() == 3);
+    }
+
+    @Test
+    public void testReadItemCollectionIncrementally() throws IOException {
+        ItemCollection itemCollection = parser.parseItemCollectionResponse(readItems());
+        try (ItemCollectionReader reader = parser.readItemCollectionResponse(STACClientTest.class.getResourceAsStream("items_1.json"))) {
+            int count = 0;
+            while (reader.hasNext()) {
+                Item item = reader.next();
+                assert (item.getId().equals(itemCollection.getFeatures().get(count).getId()));
+                count++;
+            }
+            assert (count == itemCollection.getFeatures().size());
+            assert (reader.getLinks() != null && reader.getLinks().size() == itemCollection.getLinks().size());
+        }
+    }
+
+    @Test
+    public void testParseWithProfile() throws IOException {
+        ParseProfile profile = new ParseProfile();
+        profile.setFields(Set.of("id", "bbox"));
+        profile.setProperties(Set.of("datetime", "proj:epsg"));
+        profile.setAssets(Set.of());
+        profile.setExtensions(Set.of(ExtensionType.PROJ));
+        ItemCollection itemCollection = parser.parseItemCollectionResponse(STACClientTest.class.getResourceAsStream("items_1.json"), profile);
+        assert (itemCollection.getFeatures().size() > 0);
+        for (Item item : itemCollection.getFeatures()) {
+            assert (item.getId() != null && item.getBbox() != null);
+            assert (item.getGeometry() == null && item.getLinks() == null);
+            assert (item.getAssets() == null || item.getAssets().isEmpty());
+            assert (item.getExtension(ExtensionType.PROJ) != null && item.getExtension(ExtensionType.EO) == null);
+            assert (item.getFields().keySet().stream().noneMatch(key -> key.equals("title") || key.equals("platform")));
+        }
+    }
+
+    @Test
+    public void testParseLazily() throws IOException {
+        ItemCollection eager = parser.parseItemCollectionResponse(readItems());
+        ParseProfile profile = new ParseProfile();
+        profile.setLazy(true);
+        byte[] content = STACClientTest.class.getResourceAsStream("items_1.json").readAllBytes();
+        ItemCollection lazy = parser.parseItemCollectionResponse(content, profile);
+        assert (lazy.getFeatures().size() == eager.getFeatures().size());
+        for (int i = 0; i < lazy.getFeatures().size(); i++) {
+            Item expected = eager.getFeatures().get(i);
+            Item item = lazy.getFeatures().get(i);
+            assert (item.getId().equals(expected.getId()));
+            assert (Objects.equals(item.getDatetime(), expected.getDatetime()));
+            assert (item.getAssets().keySet().equals(expected.getAssets().keySet()));
+            assert (item.getLinks().size() == expected.getLinks().size());
+            assert (item.getGeometry().getType() == expected.getGeometry().getType());
+        }
+    }
+
+    @Test
+    public void testParseWithCanonicalizer() throws IOException {
+        ParseProfile profile = new ParseProfile();
+        profile.setCanonicalizer(new StringCanonicalizer());
+        ItemCollection itemCollection = parser.parseItemCollectionResponse(
+                STACClientTest.class.getResourceAsStream("items_2.json"), profile);
+        assert (profile.getCanonicalizer().getHits() > 0);
+        // the values are admitted when met for the second time
+        Item second = itemCollection.getFeatures().get(1);
+        Item third = itemCollection.getFeatures().get(2);
+        assert (second.getLinks().get(0).getRel() == third.getLinks().get(0).getRel());
+        assert (second.getAssets().get("B04").getType() == third.getAssets().get("B04").getType());
+        StringCanonicalizer strings = new StringCanonicalizer();
+        strings.canonicalize(new String("unique"));
+        assert (strings.getSize() == 0);
+        strings.canonicalize(new String("repeated"));
+        String canonical = strings.canonicalize(new String("repeated"));
+        assert (strings.getSize() == 1 && strings.canonicalize(new String("repeated")) == canonical);
+    }
+
+    @Test
+    public void testParseInParallel() throws IOException {
+        byte[] content = STACClientTest.class.getResourceAsStream("items_2.json").readAllBytes();
+        ItemCollection expected = parser.parseItemCollectionResponse(content, (ParseProfile) null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ItemCollection itemCollection = parser.parseItemCollectionResponse(content, pool);
+            assert (itemCollection.getFeatures().size() == expected.getFeatures().size());
+            for (int i = 0; i < expected.getFeatures().size(); i++) {
+                assert (itemCollection.getFeatures().get(i).getId().equals(expected.getFeatures().get(i).getId()));
+            }
+            assert (itemCollection.getLinks().size() == expected.getLinks().size());
+            assert (itemCollection.getNumberMatched() == expected.getNumberMatched());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseDateTime() {
+        DateTimeFormatter resilient = DateUtils.getResilientFormatterAtUTC();
+        StringBuilder fraction = new StringBuilder();
+        // beyond 6 digits, neither the fast path nor the formatter accept the fraction
+        for (int digits = 0; digits <= 12; digits++) {
+            for (String separator : new String[] { "T", " " }) {
+                for (String zone : new String[] { "", "Z", "+02:00", "-05:30" }) {
+                    assertSameDateTime("2021-03-04" + separator + "10:20:30" + (digits > 0 ? "." + fraction : "") + zone, resilient);
+                }
+            }
+            fraction.append((digits + 1) % 10);
+        }
+        // handed to the formatter
+        for (String value : new String[] { "2021-03-04T10:20:60Z", "2021-02-29T10:20:30Z", "2020-02-29T10:20:30Z",
+                                           "2021-03-04T10:20:30+0200", "2021-03-04T10:20:30.1234567890Z", "2021-3-4T10:20:30Z" }) {
+            assertSameDateTime(value, resilient);
+        }
+        assert (LocalDateTime.of(2021, 3, 4, 10, 20, 30, 123456000).equals(DateTimeParser.parseDateTime("2021-03-04T10:20:30.123456Z")));
+        assert (LocalDateTime.of(2021, 3, 4, 10, 20, 30).equals(DateTimeParser.parseDateTime("2021-03-04 10:20:30+02:00")));
+        assert (LocalDate.of(2021, 3, 4).equals(JsonValueHelper.tryGuessTypedValue("2021-03-04")));
+        assert (LocalDateTime.of(2021, 3, 4, 10, 20, 30).equals(JsonValueHelper.tryGuessTypedValue("2021-03-04T10:20:30Z")));
+        // strings that merely contain a date are kept as they are
+        for (String value : new String[] { "S2A_MSIL2A_20161102T100152_N0001_R122_T32SQH_20190504T202949", "product 2021-03-04 v2",
+                                           "2021-03-04_tile", "file_2021-03-04T10:20:30Z.tif",
+                                           "2021-03-04T10:20:30Z/2021-03-05T10:20:30Z", "2021-03-04T10:20:60Z" }) {
+            assert (value.equals(JsonValueHelper.tryGuessTypedValue(value)));
+        }
+    }
+
+    @Test
+    public void testExtensionTypeFromURI() {
+        assert (ExtensionType.fromURI("https://stac-extensions.github.io/eo/v1.0.0/schema.json") == ExtensionType.EO);
+        assert (ExtensionType.fromURI("https://stac-extensions.github.io/eo/v1.1.0/schema.json") == ExtensionType.EO);
+        assert (ExtensionType.fromURI("https://stac-extensions.github.io/projection/v2.0.0/schema.json") == ExtensionType.PROJ);
+        assert (ExtensionType.fromURI("view") == ExtensionType.VIEW);
+        assert (ExtensionType.fromURI("https://stac-extensions.github.io/sat/v1.0.0/schema.json") == null);
+        assert (ExtensionType.forField("eo:cloud_cover") == ExtensionType.EO);
+        assert (ExtensionType.forField("proj:bbox") == ExtensionType.PROJ);
+        assert (ExtensionType.forField("platform") == null);
+    }
+
     @Test
     public void testCatalog() throws IOException {
         Catalog catalog = client.getCatalog();
@@ -65,6 +387,15 @@ public class STACClientTest {
         assert (collectionList != null);
     }
 
+    @Test
+    public void testCapabilities() throws IOException {
+        CatalogCapabilities capabilities = client.getCapabilities();
+        assert (capabilities.isSearchSupported());
+        assert (capabilities.conformsTo("https://api.stacspec.org/v1.0.0/item-search"));
+        assert (client.getCapabilities() == capabilities);
+        assert (client.refreshCapabilities() != capabilities);
+    }
+
     @Test
     public void testItems() throws IOException {
         final String collectionName = "sentinel-2-l2a";
@@ -93,6 +424,631 @@ public class STACClientTest {
         }
     }
 
+    @Test
+    public void testSearchAll() throws IOException {
+        final String collectionName = "sentinel-2-l2a";
+        Map<String, Object> params = new HashMap<>();
+        params.put("bbox", "20.2201924985,43.6884447292,29.62654341,48.2208812526");
+        params.put("datetime", "2022-05-01T00:00:00Z/2022-05-02T23:59:59Z");
+        try (Stream<Item> items = client.searchAll(collectionName, params, 5)) {
+            List<String> ids = items.limit(12).map(Item::getId).collect(Collectors.toList());
+            assert (ids.size() == 12);
+            assert (new HashSet<>(ids).size() == ids.size());
+        }
+    }
+
+    @Test
+    public void testSearchWithRequest() throws IOException {
+        SearchRequest request = new SearchRequest();
+        request.setCollections("sentinel-2-l2a");
+        Geometry.Polygon area = new Geometry.Polygon();
+        area.setCoordinates(new double[][][] { { { 20.22, 43.69 }, { 29.63, 43.69 }, { 29.63, 48.22 }, { 20.22, 48.22 }, { 20.22, 43.69 } } });
+        request.setIntersects(area);
+        request.setDatetime(LocalDateTime.of(2022, 5, 1, 0, 0), LocalDateTime.of(2022, 5, 2, 23, 59, 59));
+        request.setLimit(5);
+        ItemCollection results = client.search(request);
+        assert (results != null && results.getFeatures().size() <= 5);
+        try (Stream<Item> items = client.searchAll(request)) {
+            assert (items.limit(8).count() == 8);
+        }
+    }
+
+    @Test
+    public void testTemporalShardedSearch() throws IOException {
+        SearchRequest request = new SearchRequest();
+        request.setCollections("sentinel-2-l2a");
+        request.setBbox(20.22, 43.69, 29.63, 48.22);
+        request.setLimit(100);
+        LocalDateTime start = LocalDateTime.of(2022, 5, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2022, 5, 5, 0, 0);
+        request.setDatetime(start, end);
+        long matched = client.search(request).getNumberMatched();
+        assert (matched > 0);
+        AtomicInteger splits = new AtomicInteger();
+        TemporalShardedSearch search = new TemporalShardedSearch(client, request, start, end) {
+            @Override
+            protected List<LocalDateTime[]> split(LocalDateTime[] interval) {
+                splits.incrementAndGet();
+                return super.split(interval);
+            }
+        };
+        search.setShardCount(2);
+        // at least one of the two intervals matches more items than allowed
+        search.setMaxItemsPerShard((int) Math.max(1, matched / 4));
+        List<Item> items = search.execute();
+        assert (splits.get() > 0);
+        assert (items.size() == matched);
+        assert (items.size() == items.stream().map(Item::getId).distinct().count());
+    }
+
+    @Test
+    public void testSpatialTiledSearch() throws IOException {
+        SearchRequest request = new SearchRequest();
+        request.setCollections("sentinel-2-l2a");
+        request.setBbox(20.22, 43.69, 29.63, 48.22);
+        request.setDatetime(LocalDateTime.of(2022, 5, 1, 0, 0), LocalDateTime.of(2022, 5, 2, 23, 59, 59));
+        request.setLimit(100);
+        long matched = client.search(request).getNumberMatched();
+        assert (matched > 0);
+        SpatialTiledSearch search = new SpatialTiledSearch(client, request, 3, 2);
+        List<Item> items = search.execute();
+        assert (items.size() == matched);
+        assert (items.size() == items.stream().map(Item::getId).distinct().count());
+    }
+
+    @Test
+    public void testSpatialTiledSearchWithSplit() throws IOException {
+        SearchRequest request = new SearchRequest();
+        request.setCollections("sentinel-2-l2a");
+        request.setBbox(20.22, 43.69, 29.63, 48.22);
+        request.setDatetime(LocalDateTime.of(2022, 5, 1, 0, 0), LocalDateTime.of(2022, 5, 2, 23, 59, 59));
+        request.setLimit(100);
+        long matched = client.search(request).getNumberMatched();
+        assert (matched > 0);
+        AtomicInteger splits = new AtomicInteger();
+        SpatialTiledSearch search = new SpatialTiledSearch(client, request, 2, 1) {
+            @Override
+            protected List<double[]> split(double[] tile) {
+                splits.incrementAndGet();
+                return super.split(tile);
+            }
+        };
+        // at least one of the two tiles matches more items than allowed
+        search.setMaxItemsPerShard((int) Math.max(1, matched / 4));
+        List<Item> items = search.execute();
+        assert (splits.get() > 0);
+        assert (items.size() == matched);
+        assert (items.size() == items.stream().map(Item::getId).distinct().count());
+    }
+
+    @Test
+    public void testCatalogServedFromCache() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        // servers usually end the document with a new line, that parsers do not read
+        STACClient cachedClient = new STACClient("https://stac.example.com", null, serve(catalog() + "\n", requests));
+        DiskResponseCache cache = new DiskResponseCache(Files.createTempDirectory("stac-cache"), 1024 * 1024);
+        cachedClient.getHttpClient().setResponseCache(cache);
+        Catalog first = cachedClient.getCatalog();
+        Catalog second = cachedClient.getCatalog();
+        assert (requests.get() == 1);
+        assert (cache.getHits() == 1);
+        assert (first.getId() != null && first.getId().equals(second.getId()));
+        cache.clear();
+    }
+
+    @Test
+    public void testSearchWithoutLinks() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        STACClient noLinksClient = new STACClient("https://stac.example.com", null,
+                                                  serve("{\"id\": \"empty\", \"conformsTo\": []}", requests));
+        assert (!noLinksClient.getCapabilities().isSearchSupported());
+        try {
+            noLinksClient.search(new SearchRequest());
+            assert (false);
+        } catch (IOException e) {
+            assert (e.getMessage().startsWith("Search not supported"));
+        }
+        assert (requests.get() == 1);
+    }
+
+    @Test
+    public void testTokenLoginByConcurrentCallers() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+        HttpClient httpClient = new HttpClient(tokenAuthentication(), transport(request -> {
+            if (request.getUrl().getPath().equals("/login")) {
+                int login = logins.incrementAndGet();
+                pause(200);
+                // the first token expires right away
+                return response(200, "{\"access_token\": \"token" + login + "\", \"expires_in\": " +
+                                     (login == 1 ? 0 : 300) + "}");
+            }
+            tokens.add(request.getHeaders().get("Authorization"));
+            return response(200, "{}");
+        }));
+        httpClient.setConcurrencyLimiter(null);
+        URL url = new URL("https://stac.example.com/collections");
+        httpClient.get(url).dispose();
+        tokens.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<HTTPResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> httpClient.get(url)));
+            }
+            for (Future<HTTPResponse> response : responses) {
+                response.get().dispose();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assert (logins.get() == 2);
+        assert (tokens.equals(Collections.singleton("token2")));
+    }
+
+    @Test
+    public void testTokenRefreshAhead() throws IOException {
+        AtomicInteger logins = new AtomicInteger();
+        List<String> tokens = Collections.synchronizedList(new ArrayList<>());
+        HttpClient httpClient = new HttpClient(tokenAuthentication(), transport(request -> {
+            if (request.getUrl().getPath().equals("/login")) {
+                return response(200, "{\"access_token\": \"token" + logins.incrementAndGet() + "\", \"expires_in\": 1}");
+            }
+            tokens.add(request.getHeaders().get("Authorization"));
+            return response(200, "{}");
+        }));
+        httpClient.setConcurrencyLimiter(null);
+        URL url = new URL("https://stac.example.com/collections");
+        httpClient.get(url).dispose();
+        httpClient.get(url).dispose();
+        // the token is still valid, but within the last fifth of its lifetime
+        pause(850);
+        httpClient.get(url).dispose();
+        assert (logins.get() == 2);
+        assert (tokens.equals(Arrays.asList("token1", "token1", "token2")));
+    }
+
+    @Test
+    public void testTokenRejectedOnce() throws IOException {
+        AtomicInteger logins = new AtomicInteger();
+        AtomicInteger requests = new AtomicInteger();
+        HttpClient httpClient = new HttpClient(tokenAuthentication(), transport(request -> {
+            if (request.getUrl().getPath().equals("/login")) {
+                return response(200, "{\"access_token\": \"token" + logins.incrementAndGet() + "\"}");
+            }
+            requests.incrementAndGet();
+            return response(401, "{}");
+        }));
+        httpClient.setConcurrencyLimiter(null);
+        try {
+            httpClient.get(new URL("https://stac.example.com/collections"));
+            assert (false);
+        } catch (HttpResponseException e) {
+            assert (e.getStatusCode() == 401);
+        }
+        assert (logins.get() == 2);
+        assert (requests.get() == 2);
+    }
+
+    @Test
+    public void testAsyncCallsCappedPerHost() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HttpTransport transport = transport(request -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            pause(50);
+            inFlight.decrementAndGet();
+            return response(200, collection());
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // two clients of the same host share the cap
+            AsyncSTACClient first = new AsyncSTACClient(new STACClient("https://async.example.com", null, transport),
+                                                        executor, 2);
+            AsyncSTACClient second = new AsyncSTACClient(new STACClient("https://async.example.com", null, transport),
+                                                         executor, 2);
+            List<CompletableFuture<Collection>> collections = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                // distinct requests, otherwise the identical calls in flight would be merged
+                collections.add(first.getCollection("first-" + i));
+                collections.add(second.getCollection("second-" + i));
+            }
+            for (CompletableFuture<Collection> collection : collections) {
+                assert (collection.get(10, TimeUnit.SECONDS).getId() != null);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assert (maxInFlight.get() == 2);
+    }
+
+    @Test
+    public void testUndecodableResponseDisposed() throws IOException {
+        AtomicInteger disposed = new AtomicInteger();
+        HttpClient httpClient = new HttpClient(null, transport(request ->
+                response(200, "not gzip".getBytes(StandardCharsets.UTF_8),
+                         Collections.singletonMap("Content-Encoding", "gzip"), disposed::incrementAndGet)));
+        httpClient.setRetryPolicy(null);
+        httpClient.setConcurrencyLimiter(null);
+        try {
+            httpClient.get(new URL("https://stac.example.com/collections"));
+            assert (false);
+        } catch (ZipException e) {
+            assert (disposed.get() == 1);
+        }
+    }
+
+    @Test
+    public void testCompressedResponsesDecoded() throws IOException {
+        byte[] content = catalog().getBytes(StandardCharsets.UTF_8);
+        Map<String, byte[]> bodies = new HashMap<>();
+        bodies.put("gzip", compress(GZIPOutputStream::new, content));
+        bodies.put("deflate", compress(DeflaterOutputStream::new, content));
+        // some servers send deflate content without the zlib wrapper
+        Compressor rawDeflate = out -> new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        bodies.put("raw", compress(rawDeflate, content));
+        Set<String> acceptEncodings = ConcurrentHashMap.newKeySet();
+        HttpClient httpClient = new HttpClient(null, transport(request -> {
+            acceptEncodings.add(request.getHeaders().get("Accept-Encoding"));
+            String name = request.getUrl().getPath().substring(1);
+            return response(200, bodies.get(name),
+                            Collections.singletonMap("Content-Encoding", name.equals("raw") ? "deflate" : name), null);
+        }));
+        httpClient.setConcurrencyLimiter(null);
+        for (String name : bodies.keySet()) {
+            HTTPResponse response = httpClient.get(new URL("https://stac.example.com/" + name));
+            try (InputStream stream = response.getResponseStream()) {
+                assert (Arrays.equals(readFully(stream), content)) : name;
+            }
+        }
+        assert (acceptEncodings.equals(Collections.singleton("gzip, deflate")));
+        TransferStatistics statistics = httpClient.getStatistics();
+        assert (statistics.getResponses() == 3);
+        assert (statistics.getCompressedResponses() == 3);
+        assert (statistics.getWireBytes() == bodies.values().stream().mapToLong(body -> body.length).sum());
+        assert (statistics.getContentBytes() == 3L * content.length);
+    }
+
+    @Test
+    public void testRetryableErrors() throws IOException {
+        RetryPolicy policy = new RetryPolicy();
+        URL url = new URL("https://stac.example.com/search");
+        assert (policy.isRetryable(new SocketTimeoutException()));
+        assert (policy.isRetryable(new ConnectException()));
+        assert (policy.isRetryable(new SocketException("Connection reset")));
+        assert (policy.isRetryable(new EOFException()));
+        assert (policy.isRetryable(new HttpResponseException(503, url)));
+        assert (!policy.isRetryable(new HttpResponseException(404, url)));
+        assert (!policy.isRetryable(new ZipException("Not in GZIP format")));
+        assert (!policy.isRetryable(new IOException("Unsupported content encoding: br")));
+        assert (!policy.isRetryable(new IOException("Canceled")));
+        assert (!policy.isRetryable(new InterruptedIOException()));
+        assert (!policy.isRetryable(new UnknownHostException("stac.example.com")));
+    }
+
+    @Test
+    public void testRetryAfterServiceUnavailable() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpClient httpClient = retryingClient(transport(request -> {
+            return requests.incrementAndGet() == 1 ? response(503, "{}") : response(200, "{}");
+        }), new RetryBudget(0.2, 10, 100));
+        httpClient.get(new URL("https://stac.example.com/collections")).dispose();
+        assert (requests.get() == 2);
+    }
+
+    @Test
+    public void testRetryAfterHeader() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpClient httpClient = retryingClient(transport(request -> {
+            if (requests.incrementAndGet() == 1) {
+                return response(503, new byte[0], Collections.singletonMap("Retry-After", "1"), null);
+            }
+            return response(200, "{}");
+        }), new RetryBudget(0.2, 10, 100));
+        URL url = new URL("https://stac.example.com/collections");
+        long start = System.currentTimeMillis();
+        httpClient.get(url).dispose();
+        assert (requests.get() == 2);
+        assert (System.currentTimeMillis() - start >= 1000);
+        // the server asks for a longer delay than accepted
+        requests.set(0);
+        httpClient.getRetryPolicy().setMaxRetryAfter(500);
+        try {
+            httpClient.get(url);
+            assert (false);
+        } catch (HttpResponseException e) {
+            assert (e.getStatusCode() == 503);
+        }
+        assert (requests.get() == 1);
+    }
+
+    @Test
+    public void testNonIdempotentRequestNotRetried() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpClient httpClient = retryingClient(transport(request -> {
+            requests.incrementAndGet();
+            return response(503, "{}");
+        }), new RetryBudget(0.2, 10, 100));
+        try {
+            httpClient.post(new URL("https://stac.example.com/orders"),
+                            new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)), "application/json");
+            assert (false);
+        } catch (HttpResponseException e) {
+            assert (e.getStatusCode() == 503);
+        }
+        assert (requests.get() == 1);
+    }
+
+    @Test
+    public void testRetryBudgetExhausted() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        // each request allows half a retry
+        HttpClient httpClient = retryingClient(transport(request -> {
+            requests.incrementAndGet();
+            return response(503, "{}");
+        }), new RetryBudget(0.5, 0, 100));
+        URL url = new URL("https://stac.example.com/collections");
+        for (int i = 0; i < 2; i++) {
+            try {
+                httpClient.get(url);
+                assert (false);
+            } catch (HttpResponseException e) {
+                assert (e.getStatusCode() == 503);
+            }
+        }
+        // no retry for the first request, a single one for the second
+        assert (requests.get() == 3);
+    }
+
+    @Test
+    public void testConcurrencyLimitHalvedOnOverload() throws IOException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 256);
+        URL url = new URL("https://stac.example.com/search");
+        limiter.acquire(url).onResponse(429);
+        assert (limiter.getLimit(url) == 8);
+        // a burst of rejections accounts for a single decrease
+        limiter.acquire(url).onResponse(503);
+        assert (limiter.getLimit(url) == 8);
+        pause(150);
+        limiter.acquire(url).onResponse(503);
+        assert (limiter.getLimit(url) == 4);
+    }
+
+    @Test
+    public void testConcurrencyLimitRaisedOnSuccess() throws IOException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 256);
+        URL url = new URL("https://stac.example.com/search");
+        for (int round = 0; round < 5; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(url); i++) {
+                permits.add(limiter.acquire(url));
+            }
+            // steady latency, with all the slots in use
+            pause(5);
+            permits.forEach(permit -> permit.onResponse(200));
+        }
+        assert (limiter.getLimit(url) > 4);
+    }
+
+    @Test
+    public void testIdenticalCallsCoalesced() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger status = new AtomicInteger(200);
+        STACClient coalescingClient = new STACClient("https://stac.example.com", null, transport(request -> {
+            requests.incrementAndGet();
+            pause(200);
+            return response(status.get(), collection());
+        }));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Collection>> collections = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                collections.add(executor.submit(() -> coalescingClient.getCollection("sentinel-2-l2a")));
+            }
+            Collection first = collections.get(0).get();
+            for (Future<Collection> collection : collections) {
+                assert (collection.get() == first);
+            }
+            assert (requests.get() == 1);
+            // a failure reaches all the callers
+            requests.set(0);
+            status.set(404);
+            collections.clear();
+            for (int i = 0; i < 8; i++) {
+                collections.add(executor.submit(() -> coalescingClient.getCollection("sentinel-2-l2a")));
+            }
+            for (Future<Collection> collection : collections) {
+                try {
+                    collection.get();
+                    assert (false);
+                } catch (ExecutionException e) {
+                    assert (e.getCause() instanceof HttpResponseException);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assert (requests.get() == 1);
+    }
+
+    @Test
+    public void testHedgeRecordsCallLatency() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpClient httpClient = new HttpClient(null, transport(request -> {
+            if (requests.incrementAndGet() == 1) {
+                // the primary attempt hangs until it is cancelled
+                CountDownLatch cancelled = new CountDownLatch(1);
+                request.onCancel(cancelled::countDown);
+                try {
+                    cancelled.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Canceled");
+            }
+            pause(20);
+            return response(200, "{}");
+        }));
+        HedgingPolicy policy = new HedgingPolicy();
+        policy.setPercentile(1);
+        policy.setMinDelay(0);
+        policy.setMinSamples(5);
+        policy.setBudget(new RetryBudget(0.2, 10, 100));
+        httpClient.setHedgingPolicy(policy);
+        httpClient.setRetryPolicy(null);
+        httpClient.setConcurrencyLimiter(null);
+        URL url = new URL("https://stac.example.com/collections");
+        for (int i = 0; i < 5; i++) {
+            policy.record(url, 30);
+        }
+        httpClient.get(url).dispose();
+        assert (requests.get() == 2);
+        // the caller waited for the hedging delay (30 ms) and for the hedge (20 ms)
+        assert (policy.getHedgeDelay(url) >= 50);
+    }
+
+    @Test
+    public void testShardedSearchKeepsSameIdInOtherCollection() throws IOException {
+        String items = "{\"type\": \"FeatureCollection\", \"numberMatched\": 2, \"features\": [" +
+                "{\"type\": \"Feature\", \"id\": \"T35TLK\", \"collection\": \"sentinel-2-l1c\", \"properties\": {}}, " +
+                "{\"type\": \"Feature\", \"id\": \"T35TLK\", \"collection\": \"sentinel-2-l2a\", \"properties\": {}}]}";
+        String catalog = "{\"id\": \"catalog\", \"links\": [{\"rel\": \"search\", " +
+                "\"href\": \"https://stac.example.com/search\"}]}";
+        STACClient shardedClient = new STACClient("https://stac.example.com", null, transport(request ->
+                response(200, request.getMethod() == HttpMethod.GET ? catalog : items)));
+        SearchRequest request = new SearchRequest();
+        request.setCollections("sentinel-2-l1c", "sentinel-2-l2a");
+        TemporalShardedSearch search = new TemporalShardedSearch(shardedClient, request,
+                                                                 LocalDateTime.of(2022, 5, 1, 0, 0),
+                                                                 LocalDateTime.of(2022, 5, 3, 0, 0));
+        search.setShardCount(2);
+        // every shard returns both items, each of them is delivered once
+        assert (search.execute().size() == 2);
+    }
+
+    private static void assertSameDateTime(String value, DateTimeFormatter formatter) {
+        LocalDateTime expected;
+        try {
+            expected = LocalDateTime.parse(value, formatter);
+        } catch (DateTimeParseException e) {
+            expected = null;
+        }
+        LocalDateTime actual;
+        try {
+            actual = DateTimeParser.parseDateTime(value);
+        } catch (DateTimeParseException e) {
+            actual = null;
+        }
+        assert (Objects.equals(expected, actual)) : value;
+    }
+
+    private Geometry<?> parseGeometry(String type, String coordinates, boolean typeFirst) throws IOException {
+        String geometry = typeFirst
+                          ? "{\"type\": \"" + type + "\", \"coordinates\": " + coordinates + "}"
+                          : "{\"coordinates\": " + coordinates + ", \"type\": \"" + type + "\"}";
+        return parser.parseItemResponse("{\"type\": \"Feature\", \"id\": \"geometry\", \"geometry\": " + geometry +
+                                        ", \"properties\": {}}").getGeometry();
+    }
+
+    /**
+     * Returns a transport answering the given JSON document to any request
+     */
+    private static HttpTransport serve(String json, AtomicInteger requests) {
+        return transport(request -> {
+            requests.incrementAndGet();
+            return response(200, json);
+        });
+    }
+
+    /**
+     * Returns a transport whose responses are produced by the given function
+     */
+    private static HttpTransport transport(Responder responder) {
+        return new HttpTransport() {
+            @Override
+            public TransportResponse execute(TransportRequest request) throws IOException {
+                return responder.respond(request);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static TransportResponse response(int status, String json) {
+        return response(status, json.getBytes(StandardCharsets.UTF_8), Collections.emptyMap(), null);
+    }
+
+    private static TransportResponse response(int status, byte[] body, Map<String, String> extraHeaders,
+                                              Closeable resource) {
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("Content-Type", Collections.singletonList("application/json"));
+        extraHeaders.forEach((name, value) -> headers.put(name, Collections.singletonList(value)));
+        return new TransportResponse(status, headers, new ByteArrayInputStream(body), resource);
+    }
+
+    private static byte[] compress(Compressor compressor, byte[] content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = compressor.wrap(buffer)) {
+            out.write(content);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int count;
+        while ((count = stream.read(chunk)) > -1) {
+            buffer.write(chunk, 0, count);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void pause(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static HttpClient retryingClient(HttpTransport transport, RetryBudget budget) {
+        HttpClient httpClient = new HttpClient(null, transport);
+        RetryPolicy policy = new RetryPolicy();
+        policy.setBaseDelay(10);
+        policy.setMaxDelay(50);
+        policy.setBudget(budget);
+        httpClient.setRetryPolicy(policy);
+        httpClient.setConcurrencyLimiter(null);
+        return httpClient;
+    }
+
+    private static Authentication tokenAuthentication() {
+        Authentication authentication = new Authentication();
+        authentication.setType(AuthenticationType.TOKEN);
+        authentication.setUser("user");
+        authentication.setPassword("password");
+        authentication.setLoginUrl("https://stac.example.com/login");
+        authentication.setAuthHeader("Authorization");
+        return authentication;
+    }
+
+    /**
+     * Wraps a stream into a compressing stream
+     */
+    private interface Compressor {
+        OutputStream wrap(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Produces the response of a fake transport
+     */
+    private interface Responder {
+        TransportResponse respond(TransportRequest request) throws IOException;
+    }
 
     private static String catalog() {
         return "{\n" +